@@ -0,0 +1,223 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick Tree (Binary Index Tree) that uses addition and grows as new values get appended to its end, for example one bucket
+ * per second of a time series. append() is O(log n) and does not rebuild anything.
+ * 
+ * It works because node i only covers the range (i - lsb(i), i], where lsb(i) is the least significant set bit of i. So none of the
+ * existing nodes have to change when a new value is appended. The new node is just the new value plus the nodes that cover the rest
+ * of its range, i.e. the same walk down the tree as sum() does.
+ * 
+ * The tree is stored in fixed size chunks, so growing only adds a new chunk and the old ones never move or get copied.
+ * 
+ * Optionally, it can run as a ring buffer that keeps only the last "window" values. Then appending past the window overwrites the
+ * oldest value, which is a regular O(log n) update, and windowSum() gives the sliding window total.
+ * 
+ * @author Andre Violentyev
+ */
+public class AppendableFenwickTreeSum {
+	
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private long[][] chunks = new long[1][];
+	private int size = 0; // number of values appended so far
+	final private int window; // 0 if not running as a ring buffer
+	
+	/**
+	 * creates an empty tree that keeps growing
+	 */
+	public AppendableFenwickTreeSum() {
+		this.window = 0;
+	}
+	
+	/**
+	 * creates an empty ring buffer that keeps only the last window values
+	 * @param window
+	 */
+	public AppendableFenwickTreeSum(int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("window must be > 0: " + window);
+		}
+		this.window = window;
+		
+		int numChunks = (window >>> CHUNK_BITS) + 1; // node indexes are from 1 to window
+		chunks = new long[numChunks][];
+		for (int c = 0; c < numChunks; c++) {
+			chunks[c] = new long[CHUNK_SIZE];
+		}
+	}
+	
+	private long get(int i) {
+		return chunks[i >>> CHUNK_BITS][i & CHUNK_MASK];
+	}
+	
+	/**
+	 * @return number of values appended so far, including the ones that have expired
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return number of tree nodes currently in use
+	 */
+	private int nodes() {
+		return window == 0 ? size : Math.min(size, window);
+	}
+	
+	/**
+	 * maps the position of a value (starting at 1) to its tree node index
+	 */
+	private int node(int i) {
+		return window == 0 ? i : (i - 1) % window + 1;
+	}
+	
+	/**
+	 * Returns the sum of the tree nodes from 1 to i (inclusive)
+	 * @param i
+	 */
+	private long prefix(int i) {
+	    long sum = 0;
+	    while (i > 0) { 
+	        sum += get(i);
+	        i -= i & -i; // zeroes the least significant bit of value 1
+	    }
+	    return sum;
+	}
+	
+	/**
+	 * Adds k to tree node i, propagating the change to the right end of the tree so that range operations still work
+	 * @param i
+	 * @param k
+	 */
+	private void addNode(int i, long k) {
+		int n = window == 0 ? size : window;
+		while (i <= n) {
+			chunks[i >>> CHUNK_BITS][i & CHUNK_MASK] += k;
+			i += i & -i; // take the least significant set bit and add to i
+		}
+	}
+	
+	/**
+	 * Appends the value to the end, in O(log n). If running as a ring buffer that is already full, the oldest value gets dropped.
+	 * @param value
+	 * @return position of the new value, starting at 1
+	 */
+	public int append(long value) {
+		if (window > 0) {
+			long oldest = size >= window ? valueAt(size - window + 1) : 0; // the new value takes its node
+			size++;
+			addNode(node(size), value - oldest);
+			return size;
+		}
+		
+		size++;
+		int c = size >>> CHUNK_BITS;
+		if (c == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2); // only the chunk references get copied
+		}
+		if (chunks[c] == null) {
+			chunks[c] = new long[CHUNK_SIZE];
+		}
+		
+		/*
+		 * node 'size' covers (size - lsb(size), size]. Everything except for the new value itself is already covered by 
+		 * the existing nodes to its left.
+		 */
+		long node = value;
+		int lo = size - (size & -size);
+		for (int i = size - 1; i > lo; i -= i & -i) {
+			node += get(i);
+		}
+		chunks[c][size & CHUNK_MASK] = node;
+		
+		return size;
+	}
+	
+	/**
+	 * throws if positions i to j have not been appended yet or, in the ring buffer mode, if i has already expired
+	 */
+	private void checkRange(int i, int j) {
+		if (i < 1 || j > size) {
+			throw new IllegalArgumentException("Range [" + i + ", " + j + "] is out of bounds [1, " + size + "]");
+		}
+		if (window > 0 && i <= size - window) {
+			throw new IllegalArgumentException("Position " + i + " has already expired, oldest available is " + (size - window + 1));
+		}
+	}
+	
+	/**
+	 * Returns the sum of the values at positions i to j (inclusive). In the ring buffer mode, i has to be within the window.
+	 * @param i - starts at 1
+	 * @param j - at most size()
+	 * @return
+	 */
+	public long sum(int i, int j) {
+		if (i > j) {
+			return 0;
+		}
+		checkRange(i, j);
+		
+		int a = node(i);
+		int b = node(j);
+		if (a <= b) {
+			return prefix(b) - prefix(a - 1);
+		} else {
+			return prefix(nodes()) - prefix(a - 1) + prefix(b); // range wraps around the end of the ring
+		}
+	}
+	
+	/**
+	 * Returns the sum of the values at positions 1 to i (inclusive). Not available in the ring buffer mode once values start to expire.
+	 * @param i
+	 */
+	public long sum(int i) {
+		return sum(1, i);
+	}
+	
+	/**
+	 * just the value at position i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(int i) {
+		return sum(i, i);
+	}
+	
+	/**
+	 * Adds k to the value at position i
+	 * @param i
+	 * @param k
+	 */
+	public void add(int i, long k) {
+		checkRange(i, i);
+		addNode(node(i), k);
+	}
+	
+	/**
+	 * @return sum of the last window values, or of all the values if not running as a ring buffer
+	 */
+	public long windowSum() {
+		return prefix(nodes());
+	}
+	
+	public static void main(String[] args) {
+		AppendableFenwickTreeSum ft = new AppendableFenwickTreeSum();
+		for (int i = 1; i <= 100_000; i++) {
+			ft.append(i);
+		}
+		System.out.println("sum(1, 100000) = " + ft.sum(100_000));
+		System.out.println("sum(70000, 70003) = " + ft.sum(70_000, 70_003));
+		
+		AppendableFenwickTreeSum ring = new AppendableFenwickTreeSum(60); // last minute of per-second buckets
+		for (int i = 1; i <= 1000; i++) {
+			ring.append(i);
+		}
+		System.out.println("last 60 = " + ring.windowSum());
+		System.out.println("sum(990, 1000) = " + ring.sum(990, 1000));
+	}
+}
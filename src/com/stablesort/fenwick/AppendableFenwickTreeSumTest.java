@@ -0,0 +1,137 @@
+package com.stablesort.fenwick;
+
+import java.util.Random;
+
+/*
+ * for testing AppendableFenwickTreeSum, both when it keeps growing and when it runs as a ring buffer
+ */
+public class AppendableFenwickTreeSumTest {
+	
+	Random r = new Random();
+	
+	/**
+	 * naive sum of the values at positions i to j (inclusive), ar[0] is ignored
+	 */
+	private long dumbSum(long[] ar, int i, int j) {
+		long sum = 0;
+		for (int k = i; k <= j; k++) {
+			sum += ar[k];
+		}
+		return sum;
+	}
+	
+	private void expectRejected(Runnable op, String what) {
+		try {
+			op.run();
+		} catch (IllegalArgumentException e) {
+			return; // expected
+		}
+		throw new RuntimeException(what + " was not rejected");
+	}
+	
+	/**
+	 * Appends enough values to span several chunks, with random adds in between, and compares the sums against a plain array
+	 */
+	public void testAppend() {
+		int n = 3 * (1 << 16) + 123;
+		long[] ar = new long[n + 1];
+		AppendableFenwickTreeSum ft = new AppendableFenwickTreeSum();
+		
+		for (int size = 1; size <= n; size++) {
+			ar[size] = r.nextInt(2001) - 1000;
+			if (ft.append(ar[size]) != size) {
+				throw new RuntimeException("append returned wrong position at " + size);
+			}
+			
+			if (r.nextInt(4) == 0) {
+				int i = r.nextInt(size) + 1;
+				long k = r.nextInt(2001) - 1000;
+				ft.add(i, k);
+				ar[i] += k;
+			}
+			
+			if (size % 997 == 0 || size < 100) {
+				int j = r.nextInt(size) + 1;
+				int i = r.nextInt(j) + 1;
+				long expected = dumbSum(ar, i, j);
+				if (expected != ft.sum(i, j) || ar[j] != ft.valueAt(j)) {
+					throw new RuntimeException("mismatch for [" + i + ", " + j + "] at size " + size + ": " + expected + " <> " + ft.sum(i, j));
+				}
+			}
+		}
+		
+		if (dumbSum(ar, 1, n) != ft.windowSum() || dumbSum(ar, 1, n) != ft.sum(n)) {
+			throw new RuntimeException("total mismatch: " + dumbSum(ar, 1, n) + " <> " + ft.windowSum());
+		}
+		
+		expectRejected(() -> ft.sum(1, n + 1), "sum past the end");
+		expectRejected(() -> ft.sum(0, 5), "sum from 0");
+		expectRejected(() -> ft.add(n + 1, 1), "add past the end");
+		
+		System.out.println("testAppend: SUCCESS");
+	}
+	
+	/**
+	 * Keeps appending well past the window size, so that the ring wraps around several times and old values get evicted.
+	 * Sums that wrap around the end of the ring, as well as adds to the values still in the window, get compared against
+	 * a plain array.
+	 */
+	public void testRing() {
+		int[] windows = {1, 2, 7, 60, 1000, (1 << 16) + 5}; // the last one takes more than one chunk
+		for (int window : windows) {
+			int n = 3 * window + r.nextInt(window) + 10;
+			long[] ar = new long[n + 1];
+			AppendableFenwickTreeSum ft = new AppendableFenwickTreeSum(window);
+			int checkEvery = Math.max(1, window / 50);
+			
+			for (int size = 1; size <= n; size++) {
+				ar[size] = r.nextInt(2001) - 1000;
+				ft.append(ar[size]);
+				int oldest = Math.max(1, size - window + 1);
+				
+				if (r.nextInt(4) == 0) {
+					int i = oldest + r.nextInt(size - oldest + 1);
+					long k = r.nextInt(2001) - 1000;
+					ft.add(i, k);
+					ar[i] += k;
+				}
+				
+				if (size % checkEvery == 0) {
+					if (dumbSum(ar, oldest, size) != ft.windowSum()) {
+						throw new RuntimeException("window " + window + ", size " + size + ": windowSum " 
+								+ dumbSum(ar, oldest, size) + " <> " + ft.windowSum());
+					}
+					
+					int i = oldest + r.nextInt(size - oldest + 1);
+					int j = i + r.nextInt(size - i + 1);
+					long expected = dumbSum(ar, i, j);
+					if (expected != ft.sum(i, j) || ar[i] != ft.valueAt(i)) {
+						throw new RuntimeException("window " + window + ": mismatch for [" + i + ", " + j + "] at size " + size 
+								+ ": " + expected + " <> " + ft.sum(i, j));
+					}
+					
+					if (oldest > 1) {
+						int expired = oldest - 1;
+						expectRejected(() -> ft.valueAt(expired), "expired position " + expired);
+						expectRejected(() -> ft.add(expired, 1), "add to expired position " + expired);
+					}
+				}
+			}
+			
+			// the whole window, which wraps around unless n happens to be a multiple of the window
+			int oldest = n - window + 1;
+			if (dumbSum(ar, oldest, n) != ft.sum(oldest, n)) {
+				throw new RuntimeException("window " + window + ": full window mismatch");
+			}
+			expectRejected(() -> ft.sum(oldest, n + 1), "sum past the end");
+		}
+		
+		System.out.println("testRing: SUCCESS");
+	}
+	
+	public static void main(String[] args) {
+		AppendableFenwickTreeSumTest test = new AppendableFenwickTreeSumTest();
+		test.testAppend();
+		test.testRing();
+	}
+}
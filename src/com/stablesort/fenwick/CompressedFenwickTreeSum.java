@@ -0,0 +1,99 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick Tree (Binary Index Tree) over a huge key space, such as 64-bit IDs, when the set of keys is known upfront.
+ * 
+ * Uses coordinate compression: the sorted keys are mapped to their position 1..n, so the tree itself is just a dense FenwickTreeSum
+ * of size n + 1. Translating a key to its position is a binary search, so both add() and sum() are O(log n).
+ * 
+ * @author Andre Violentyev
+ */
+public class CompressedFenwickTreeSum {
+
+	final private long[] keys;
+	final private FenwickTreeSum tree;
+	
+	/**
+	 * @param sortedKeys - distinct keys in ascending order. The array is used as is, without making a copy.
+	 */
+	public CompressedFenwickTreeSum(long[] sortedKeys) {
+		this(sortedKeys, new int[sortedKeys.length]);
+	}
+	
+	/**
+	 * @param sortedKeys - distinct keys in ascending order. The array is used as is, without making a copy.
+	 * @param values - values[i] goes with sortedKeys[i]
+	 */
+	public CompressedFenwickTreeSum(long[] sortedKeys, int[] values) {
+		this.keys = sortedKeys;
+		
+		int[] ar = new int[keys.length + 1]; // data starts at index 1
+		System.arraycopy(values, 0, ar, 1, keys.length);
+		this.tree = new FenwickTreeSum(ar, true);
+	}
+	
+	/**
+	 * @param key
+	 * @return number of keys that are less than or equal to key
+	 */
+	private int rank(long key) {
+		int i = Arrays.binarySearch(keys, key);
+		return i >= 0 ? i + 1 : -i - 1;
+	}
+	
+	/**
+	 * same as rank(key - 1), but without overflowing when key is Long.MIN_VALUE
+	 * @param key
+	 * @return number of keys that are strictly less than key
+	 */
+	private int rankLess(long key) {
+		int i = Arrays.binarySearch(keys, key);
+		return i >= 0 ? i : -i - 1;
+	}
+	
+	/**
+	 * Adds k to the value at key
+	 * @param key - has to be one of the keys passed into the constructor
+	 * @param k
+	 */
+	public void add(long key, int k) {
+		int i = Arrays.binarySearch(keys, key);
+		if (i < 0) {
+			throw new IllegalArgumentException("Unknown key " + key);
+		}
+		tree.update(i + 1, tree.valueAt(i + 1) + k); // O(1) valueAt since the tree keeps its values
+	}
+	
+	/**
+	 * Returns the sum of all the values with keys from lo to hi (inclusive). Neither lo nor hi have to be one of the keys.
+	 * @param lo
+	 * @param hi
+	 * @return
+	 */
+	public int sum(long lo, long hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return tree.sum(rank(hi)) - tree.sum(rankLess(lo));
+	}
+	
+	/**
+	 * just the value at the key, 0 if it is not one of the keys
+	 * @param key
+	 * @return
+	 */
+	public int valueAt(long key) {
+		return sum(key, key);
+	}
+	
+	public static void main(String[] args) {
+		long[] keys = new long[]{3, 1_000_000_007L, 1L << 40, 1L << 50, Long.MAX_VALUE};
+		CompressedFenwickTreeSum ft = new CompressedFenwickTreeSum(keys, new int[]{1, 2, 3, 4, 5});
+		
+		ft.add(1L << 40, 10);
+		System.out.println("sum(0, 2^45) = " + ft.sum(0, 1L << 45));
+		System.out.println("sum(4, max) = " + ft.sum(4, Long.MAX_VALUE));
+	}
+}
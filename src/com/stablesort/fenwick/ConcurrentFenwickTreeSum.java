@@ -0,0 +1,124 @@
+package com.stablesort.fenwick;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Fenwick Tree (Binary Index Tree) that uses addition, without any locking.
+ * 
+ * add() does an atomic getAndAdd() on each node along the update path. Since addition is commutative, concurrent adds can
+ * interleave in any order and the tree still ends up correct. sum() just reads the nodes, so it is only weakly consistent:
+ * if it runs while adds are in progress, it may see some of them and not others.
+ * 
+ * When many threads keep hitting the same few indexes, the CAS contention on the nodes near the root becomes the bottleneck.
+ * For that case the tree can be striped: each stripe is a full copy of the tree, every thread adds into its own stripe and
+ * sum() adds up the results from all of the stripes. This makes adds cheaper at the cost of slower sums and more memory.
+ * 
+ * @author Andre Violentyev
+ */
+public class ConcurrentFenwickTreeSum {
+
+	final private AtomicLongArray tree; // stripes are stored one after another
+	final private int len; // length of a single stripe
+	final private int stripes;
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 */
+	public ConcurrentFenwickTreeSum(int[] ar) {
+		this(ar, 1);
+	}
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param stripes - number of copies of the tree, for example Runtime.getRuntime().availableProcessors()
+	 */
+	public ConcurrentFenwickTreeSum(int[] ar, int stripes) {
+		this.len = ar.length;
+		this.stripes = Math.max(1, stripes);
+		
+		/*
+		 * build the first stripe the same way as FenwickTreeSum.make() does, the other stripes start out as all zeroes
+		 */
+		long[] first = new long[len];
+		for (int i = 0; i < len; i++) {
+			first[i] = ar[i];
+		}
+		for (int i = 1; i < len; i++) {
+			int p = i + (i & -i); // index to parent range
+			if (p < len) {
+				first[p] = first[p] + first[i];
+			}
+		}
+		
+		long[] all = new long[len * this.stripes];
+		System.arraycopy(first, 0, all, 0, len);
+		this.tree = new AtomicLongArray(all);
+	}
+	
+	/**
+	 * @return offset of the stripe that the current thread should add into
+	 */
+	private int stripeBase() {
+		if (stripes == 1) {
+			return 0;
+		}
+		return (int) (Thread.currentThread().getId() % stripes) * len;
+	}
+
+	/**
+	 * Returns the sum from index 1 to i (inclusive). Weakly consistent with regards to concurrent adds.
+	 * @param i
+	 */
+	public long sum(int i) {
+		long sum = 0;
+		for (int base = 0; base < tree.length(); base += len) {
+			for (int j = i; j > 0; j -= j & -j) { // zeroes the least significant bit of value 1
+				sum += tree.get(base + j);
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * returns the sum from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public long sum(int i, int j) {
+		return sum(j) - sum(i-1);
+	}
+	
+	/**
+	 * just the value from the "original array" at index i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(int i) {
+		return sum(i) - sum(i-1);
+	}
+	
+	/**
+	 * Atomically adds k to element at index i, propagating the change to the right end of the tree so that range operations still work
+	 * @param i
+	 * @param k
+	 */
+	public void add(int i, long k) {
+		int base = stripeBase();
+		while (i < len) {
+			tree.getAndAdd(base + i, k);
+			i += i & -i; // take the least significant set bit and add to i
+		}
+	}
+	
+	public static void main(String[] args) {
+		// data starts at index 1. ar[0] is ignored
+		int ar[] = new int[]{0, 5, 2, 9, -3, 5, 20, 10, -7, 2, 3, -4, 0, -2, 15, 5};
+		ConcurrentFenwickTreeSum ft = new ConcurrentFenwickTreeSum(ar, 4);
+		ft.add(3, 10);
+		System.out.println("value at 3 = " + ft.valueAt(3));
+		System.out.println("sum(1, 3) = " + ft.sum(1, 3));
+	}
+}
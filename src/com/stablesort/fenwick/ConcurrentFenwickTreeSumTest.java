@@ -0,0 +1,105 @@
+package com.stablesort.fenwick;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+import com.stablesort.util.StopWatch;
+
+/*
+ * for testing ConcurrentFenwickTreeSum for correctness and comparing its throughput with a synchronized FenwickTreeSum
+ */
+public class ConcurrentFenwickTreeSumTest {
+	
+	int len = 1_000_000;
+	int numThreads = 32;
+	int opsPerThread = 200_000;
+	
+	/**
+	 * runs the op on numThreads threads, passing it a random index each time
+	 * @param op
+	 * @return number of milliseconds it took
+	 */
+	private long run(IntConsumer op) throws InterruptedException {
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			threads.add(new Thread(() -> {
+				ThreadLocalRandom r = ThreadLocalRandom.current();
+				for (int i = 0; i < opsPerThread; i++) {
+					op.accept(r.nextInt(len - 1) + 1);
+				}
+			}));
+		}
+		
+		StopWatch sw = new StopWatch();
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		return sw.duration();
+	}
+	
+	/**
+	 * every thread adds 1 at random indexes, so at the end the total has to equal the number of adds
+	 */
+	public void testConcurrentAdd(int stripes) throws InterruptedException {
+		ConcurrentFenwickTreeSum ft = new ConcurrentFenwickTreeSum(new int[len], stripes);
+		run(i -> ft.add(i, 1));
+		
+		long expected = (long) numThreads * opsPerThread;
+		if (ft.sum(len - 1) != expected) {
+			throw new RuntimeException("Mismatch: stripes = " + stripes + ", sum = " + ft.sum(len - 1) + " <> " + expected);
+		}
+		System.out.println("testConcurrentAdd(" + stripes + "): SUCCESS");
+	}
+	
+	/**
+	 * half of the operations are adds and half are prefix sums
+	 */
+	public void comparePerf() throws InterruptedException {
+		FenwickTreeSum synced = new FenwickTreeSum(new int[len]);
+		long tSynced = run(i -> {
+			synchronized (synced) {
+				if ((i & 1) == 0) {
+					synced.update(i, synced.valueAt(i) + 1);
+				} else {
+					synced.sum(i);
+				}
+			}
+		});
+		
+		ConcurrentFenwickTreeSum concurrent = new ConcurrentFenwickTreeSum(new int[len]);
+		long tConcurrent = run(i -> {
+			if ((i & 1) == 0) {
+				concurrent.add(i, 1);
+			} else {
+				concurrent.sum(i);
+			}
+		});
+		
+		int cores = Runtime.getRuntime().availableProcessors();
+		ConcurrentFenwickTreeSum striped = new ConcurrentFenwickTreeSum(new int[len], cores);
+		long tStriped = run(i -> {
+			if ((i & 1) == 0) {
+				striped.add(i, 1);
+			} else {
+				striped.sum(i);
+			}
+		});
+		
+		System.out.println(numThreads + " threads x " + opsPerThread + " ops");
+		System.out.println("synchronized FenwickTreeSum took " + tSynced);
+		System.out.println("ConcurrentFenwickTreeSum took " + tConcurrent);
+		System.out.println("ConcurrentFenwickTreeSum with " + cores + " stripes took " + tStriped);
+	}
+	
+	public static void main(String[] args) throws InterruptedException {
+		ConcurrentFenwickTreeSumTest t = new ConcurrentFenwickTreeSumTest();
+		t.testConcurrentAdd(1);
+		t.testConcurrentAdd(4);
+		t.comparePerf();
+	}
+}
@@ -0,0 +1,232 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.stablesort.util.Rand;
+import com.stablesort.util.StopWatch;
+
+/**
+ * Multiset of ints from a known range [min, max], built on top of FenwickTreeSum. The tree keeps the count of each value,
+ * so counting how many elements are below some x is a prefix sum, and finding the k-th smallest element is FenwickTreeSum.kthSmallest().
+ * All of the operations are O(log(max - min)).
+ * 
+ * Also has a static countInversions(), which counts the number of out of order pairs in an array, i.e. the Kendall tau distance
+ * to the sorted array.
+ * 
+ * @author Andre Violentyev
+ */
+public class FenwickMultiset {
+	
+	private static final int LEAF_SIZE = 1 << 16; // countInversions() counts pieces this small with a Fenwick tree, instead of splitting further
+
+	final private FenwickTreeSum tree;
+	final private int min;
+	final private int max;
+	private int size = 0;
+	
+	/**
+	 * @param min - smallest value that could be added, inclusive
+	 * @param max - largest value that could be added, inclusive
+	 */
+	public FenwickMultiset(int min, int max) {
+		this.min = min;
+		this.max = max;
+		this.tree = new FenwickTreeSum(new int[max - min + 2], true); // index 0 is ignored
+	}
+	
+	private int index(int x) {
+		return x - min + 1;
+	}
+	
+	/**
+	 * @return total number of elements, including duplicates
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @param x - has to be within [min, max]
+	 */
+	public void add(int x) {
+		if (x < min || x > max) {
+			throw new IllegalArgumentException("x must be from " + min + " to " + max + ": " + x);
+		}
+		int i = index(x);
+		tree.update(i, tree.valueAt(i) + 1); // valueAt() is O(1) since the tree keeps its values
+		size++;
+	}
+	
+	/**
+	 * removes a single copy of x
+	 * @param x
+	 * @return FALSE if x was not in the multiset
+	 */
+	public boolean remove(int x) {
+		if (count(x) == 0) {
+			return false;
+		}
+		
+		int i = index(x);
+		tree.update(i, tree.valueAt(i) - 1);
+		size--;
+		return true;
+	}
+	
+	/**
+	 * @param x
+	 * @return number of copies of x
+	 */
+	public int count(int x) {
+		if (x < min || x > max) {
+			return 0;
+		}
+		return tree.valueAt(index(x));
+	}
+	
+	/**
+	 * @param x
+	 * @return number of elements strictly less than x
+	 */
+	public int countLess(int x) {
+		if (x <= min) {
+			return 0;
+		}
+		if (x > max) {
+			return size;
+		}
+		return tree.sum(index(x) - 1);
+	}
+	
+	/**
+	 * @param x
+	 * @return number of elements less than or equal to x, so that rank(x) / size() is the percentile of x
+	 */
+	public int rank(int x) {
+		return x == Integer.MAX_VALUE ? size : countLess(x + 1);
+	}
+	
+	/**
+	 * @param k - starts at 1
+	 * @return the k-th smallest element
+	 */
+	public int select(int k) {
+		if (k < 1 || k > size) {
+			throw new IllegalArgumentException("k must be from 1 to " + size + ": " + k);
+		}
+		return tree.kthSmallest(k) - 1 + min;
+	}
+	
+	/**
+	 * Counts the pairs i < j where ar[i] > ar[j], in O(n log n).
+	 * 
+	 * It's a merge sort that counts the inversions between the two halves as it merges them, and the two halves are sorted
+	 * in parallel on the common ForkJoinPool. Once a piece is small enough, instead of splitting it further, its values get
+	 * compressed to ranks 1..u and the inversions inside of it are counted with a Fenwick tree of size u.
+	 * 
+	 * @param ar - not modified
+	 * @return
+	 */
+	public static long countInversions(int[] ar) {
+		int[] a = Arrays.copyOf(ar, ar.length);
+		int[] buff = new int[ar.length];
+		return ForkJoinPool.commonPool().invoke(new InversionTask(a, buff, 0, a.length));
+	}
+	
+	/**
+	 * counts inversions in a[from, to) and leaves that part of the array sorted
+	 */
+	private static class InversionTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		
+		final int[] a;
+		final int[] buff;
+		final int from;
+		final int to;
+		
+		InversionTask(int[] a, int[] buff, int from, int to) {
+			this.a = a;
+			this.buff = buff;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Long compute() {
+			if (to - from <= LEAF_SIZE) {
+				return countLeaf();
+			}
+			
+			int mid = (from + to) >>> 1;
+			InversionTask left = new InversionTask(a, buff, from, mid);
+			InversionTask right = new InversionTask(a, buff, mid, to);
+			left.fork();
+			long inv = right.compute() + left.join();
+			
+			return inv + merge(mid);
+		}
+		
+		/**
+		 * coordinate compression + Fenwick tree counting
+		 */
+		private long countLeaf() {
+			int[] sorted = Arrays.copyOfRange(a, from, to);
+			Arrays.sort(sorted);
+			
+			// remove duplicates, so that the position in 'sorted' is the rank
+			int u = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				if (u == 0 || sorted[i] != sorted[u - 1]) {
+					sorted[u++] = sorted[i];
+				}
+			}
+			
+			FenwickTreeSum counts = new FenwickTreeSum(new int[u + 1], true);
+			long inv = 0;
+			
+			for (int i = from; i < to; i++) {
+				int r = Arrays.binarySearch(sorted, 0, u, a[i]) + 1;
+				inv += (i - from) - counts.sum(r); // number of elements seen so far that are greater than a[i]
+				counts.update(r, counts.valueAt(r) + 1);
+			}
+			
+			Arrays.sort(a, from, to);
+			return inv;
+		}
+		
+		/**
+		 * merges the sorted a[from, mid) and a[mid, to), counting the pairs where the left element is greater than the right one
+		 */
+		private long merge(int mid) {
+			System.arraycopy(a, from, buff, from, to - from);
+			long inv = 0;
+			int i = from;
+			int j = mid;
+			
+			for (int k = from; k < to; k++) {
+				if (j >= to || (i < mid && buff[i] <= buff[j])) {
+					a[k] = buff[i++];
+				} else {
+					inv += mid - i; // all of the remaining left elements are greater than buff[j]
+					a[k] = buff[j++];
+				}
+			}
+			return inv;
+		}
+	}
+	
+	public static void main(String[] args) {
+		FenwickMultiset set = new FenwickMultiset(-10, 100);
+		for (int x : new int[]{5, 3, 3, 50, -7, 8, 3}) {
+			set.add(x);
+		}
+		set.remove(50);
+		System.out.println("countLess(5) = " + set.countLess(5) + ", rank(5) = " + set.rank(5) + ", select(4) = " + set.select(4));
+		
+		int[] ar = Rand.getRandIntAr(5_000_000);
+		StopWatch sw = new StopWatch();
+		System.out.println("inversions = " + countInversions(ar) + ", took " + sw);
+	}
+}
@@ -0,0 +1,173 @@
+package com.stablesort.fenwick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * for testing FenwickMultiset against a sorted list, and FenwickMultiset.countInversions() against simpler ways of counting
+ */
+public class FenwickMultisetTest {
+	
+	int numTrials = 100_000;
+	Random r = new Random();
+	
+	/**
+	 * @return number of elements in the sorted list that are strictly less than x
+	 */
+	private int dumbCountLess(List<Integer> sorted, int x) {
+		int lo = 0, hi = sorted.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (sorted.get(mid) < x) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	private void expectRejected(Runnable op, String what) {
+		try {
+			op.run();
+		} catch (IllegalArgumentException e) {
+			return; // expected
+		}
+		throw new RuntimeException(what + " was not rejected");
+	}
+	
+	public void testMultiset() {
+		int min = -500, max = 1500;
+		FenwickMultiset set = new FenwickMultiset(min, max);
+		List<Integer> sorted = new ArrayList<>();
+		
+		for (int t = 0; t < numTrials; t++) {
+			int x = min + r.nextInt(max - min + 1);
+			if (r.nextInt(3) > 0) {
+				set.add(x);
+				int pos = Collections.binarySearch(sorted, x);
+				sorted.add(pos >= 0 ? pos : -pos - 1, x);
+			} else {
+				boolean removed = sorted.remove(Integer.valueOf(x)); // the list stays sorted
+				if (removed != set.remove(x)) {
+					throw new RuntimeException("remove(" + x + ") returned " + !removed);
+				}
+			}
+			
+			int q = min - 10 + r.nextInt(max - min + 21); // also a little outside of the range
+			int less = dumbCountLess(sorted, q);
+			int rank = dumbCountLess(sorted, q + 1);
+			if (set.size() != sorted.size() || set.countLess(q) != less || set.rank(q) != rank || set.count(q) != rank - less) {
+				throw new RuntimeException("mismatch for " + q + ": countLess " + less + " <> " + set.countLess(q) 
+						+ ", rank " + rank + " <> " + set.rank(q) + ", size " + sorted.size() + " <> " + set.size());
+			}
+			
+			if (!sorted.isEmpty()) {
+				int k = r.nextInt(sorted.size()) + 1;
+				if (set.select(k) != sorted.get(k - 1)) {
+					throw new RuntimeException("select(" + k + "): " + sorted.get(k - 1) + " <> " + set.select(k));
+				}
+			}
+		}
+		
+		if (set.rank(Integer.MAX_VALUE) != set.size() || set.countLess(Integer.MIN_VALUE) != 0) {
+			throw new RuntimeException("extreme ranks are wrong");
+		}
+		expectRejected(() -> set.add(max + 1), "add above max");
+		expectRejected(() -> set.add(min - 1), "add below min");
+		expectRejected(() -> set.select(0), "select(0)");
+		expectRejected(() -> set.select(set.size() + 1), "select past the size");
+		
+		System.out.println("testMultiset: SUCCESS");
+	}
+	
+	/**
+	 * O(n^2) count of the pairs i < j where ar[i] > ar[j]
+	 */
+	private long dumbInversions(int[] ar) {
+		long inv = 0;
+		for (int i = 0; i < ar.length; i++) {
+			for (int j = i + 1; j < ar.length; j++) {
+				if (ar[i] > ar[j]) {
+					inv++;
+				}
+			}
+		}
+		return inv;
+	}
+	
+	/**
+	 * plain sequential merge sort that counts inversions, for arrays too large for dumbInversions(). Sorts ar[from, to).
+	 */
+	private long mergeInversions(int[] ar, int[] buff, int from, int to) {
+		if (to - from < 2) {
+			return 0;
+		}
+		int mid = (from + to) >>> 1;
+		long inv = mergeInversions(ar, buff, from, mid) + mergeInversions(ar, buff, mid, to);
+		
+		int i = from, j = mid, k = from;
+		while (i < mid || j < to) {
+			if (j >= to || (i < mid && ar[i] <= ar[j])) {
+				buff[k++] = ar[i++];
+			} else {
+				inv += mid - i;
+				buff[k++] = ar[j++];
+			}
+		}
+		System.arraycopy(buff, from, ar, from, to - from);
+		return inv;
+	}
+	
+	/**
+	 * Small arrays, which are counted within a single leaf, get checked against the O(n^2) count. Arrays longer than the 64K leaf,
+	 * which go through the parallel merge, get checked against a sequential merge sort and the known counts for sorted input.
+	 */
+	public void testCountInversions() {
+		for (int t = 0; t < 2000; t++) {
+			int n = r.nextInt(200);
+			int range = 1 + r.nextInt(t % 2 == 0 ? 10 : 1_000_000); // lots of duplicates half of the time
+			int[] ar = r.ints(n, -range, range).toArray();
+			if (dumbInversions(ar) != FenwickMultiset.countInversions(ar)) {
+				throw new RuntimeException("mismatch for " + Arrays.toString(ar) + ": " + dumbInversions(ar) 
+						+ " <> " + FenwickMultiset.countInversions(ar));
+			}
+		}
+		
+		for (int n : new int[]{(1 << 16) + 1, 3 * (1 << 16) + 7, 1_000_003}) {
+			for (int range : new int[]{100, Integer.MAX_VALUE}) {
+				int[] ar = r.ints(n, -range, range).toArray();
+				int[] copy = ar.clone();
+				long expected = mergeInversions(copy, new int[n], 0, n);
+				long inv = FenwickMultiset.countInversions(ar);
+				if (expected != inv) {
+					throw new RuntimeException("mismatch for n = " + n + ", range = " + range + ": " + expected + " <> " + inv);
+				}
+				if (Arrays.equals(ar, copy)) {
+					throw new RuntimeException("the input array got sorted");
+				}
+			}
+			
+			int[] ascending = new int[n];
+			int[] descending = new int[n];
+			for (int i = 0; i < n; i++) {
+				ascending[i] = i;
+				descending[i] = n - i;
+			}
+			if (FenwickMultiset.countInversions(ascending) != 0 || FenwickMultiset.countInversions(descending) != (long) n * (n - 1) / 2) {
+				throw new RuntimeException("wrong count for sorted input of length " + n);
+			}
+		}
+		
+		System.out.println("testCountInversions: SUCCESS");
+	}
+	
+	public static void main(String[] args) {
+		FenwickMultisetTest test = new FenwickMultisetTest();
+		test.testMultiset();
+		test.testCountInversions();
+	}
+}
@@ -10,11 +10,15 @@ import com.stablesort.function.ReversableOperator;
  * Generic Fenwich Tree (Binary Index Tree) implementation that could use any "reversable" operator, such as addition, multiplication, and xor.
  * It uses ArrayList, which makes it significantly (x2) slower than using arrays[]. For an array based implementation, see com.stablesort.fenwick.FenwickTreeSum
  * 
+ * Optionally, it can keep a copy of the original values next to the tree. Then valueAt() is O(1) and update() needs only a single
+ * walk up the tree, instead of three, at the cost of doubling the memory.
+ * 
  * @author Andre Violentyev
  */
 public class FenwickTree<T> {
 
 	final private List<T> tree;
+	final private List<T> values; // copy of the original array, null unless keepValues is on
 	final private ReversableOperator<T> f;
 	
 	/**
@@ -23,9 +27,27 @@ public class FenwickTree<T> {
 	 * @param f - the operator should be reversable. For example, the reverse of c = add(a, b) is a = subtract(c, b) 
 	 */
 	public FenwickTree(List<T> ar, ReversableOperator<T> f) {
+		this(ar, f, false);
+	}
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param f - the operator should be reversable. For example, the reverse of c = add(a, b) is a = subtract(c, b)
+	 * @param keepValues - if TRUE, keeps a copy of the original values, making valueAt() O(1) and update() cheaper
+	 */
+	public FenwickTree(List<T> ar, ReversableOperator<T> f, boolean keepValues) {
 		this.f = f;
 		
 		tree = new ArrayList<>(ar);
+		values = keepValues ? new ArrayList<>(ar) : null;
+		build();
+	}
+	
+	/**
+	 * Turns the original array into the tree, in place, in O(n)
+	 */
+	private void build() {
 		int size = tree.size();
 		
 		for (int i = 1; i < size; i++) {
@@ -36,6 +58,21 @@ public class FenwickTree<T> {
 		}
 	}
 	
+	/**
+	 * Reverse of build(): turns the tree back into the original array, in place, in O(n).
+	 * Going from right to left guarantees that tree[i] still holds its full range when it gets undone from its parent.
+	 */
+	private void unbuild() {
+		int size = tree.size();
+		
+		for (int i = size - 1; i > 0; i--) {
+			int p = i + (i & -i); // index to parent range
+			if (p < size) {
+				tree.set(p, f.undo(tree.get(p), tree.get(i)));
+			}
+		}
+	}
+	
 	/**
 	 * Returns the f(tree[i]) from index 1 to i, inclusive
 	 * @param i - inclusive
@@ -74,6 +111,10 @@ public class FenwickTree<T> {
 	 * @return
 	 */
 	public T valueAt(int i) {
+		if (values != null) {
+			return values.get(i);
+		}
+		
 		/*
 		 * for example if operator is addition, then to get value at original index i, is: sum(1, i) - sum(1, i-1) 
 		 */
@@ -100,9 +141,70 @@ public class FenwickTree<T> {
 	 */
 	public void update(int i, T value) {
 		T orig = valueAt(i);
+		if (values != null) {
+			values.set(i, value);
+		}
 		apply(i, f.undo(value, orig));
 	}
 	
+	/**
+	 * Applies deltas[i] to the element at index i, for every i, e.g. tree[i] += deltas[i]. Null deltas are skipped.
+	 * Depending on how many of the deltas are not null, it either applies each one of them separately, which is O(k log n),
+	 * or converts the tree back to the original array, applies the deltas and rebuilds it, which is O(n).
+	 * 
+	 * @param deltas - data starts at index 1, deltas[0] is ignored. Could be shorter than the tree.
+	 */
+	public void applyAll(List<T> deltas) {
+		int len = Math.min(deltas.size(), tree.size());
+		if (values != null) {
+			for (int i = 1; i < len; i++) {
+				if (deltas.get(i) != null) {
+					values.set(i, f.apply(values.get(i), deltas.get(i)));
+				}
+			}
+		}
+		
+		int k = 0;
+		for (int i = 1; i < len; i++) {
+			if (deltas.get(i) != null) {
+				k++;
+			}
+		}
+		
+		if (FenwickTreeSum.isIncremental(k, tree.size())) {
+			for (int i = 1; i < len; i++) {
+				if (deltas.get(i) != null) {
+					apply(i, deltas.get(i));
+				}
+			}
+		} else {
+			unbuild();
+			for (int i = 1; i < len; i++) {
+				if (deltas.get(i) != null) {
+					tree.set(i, f.apply(tree.get(i), deltas.get(i)));
+				}
+			}
+			build();
+		}
+	}
+	
+	/**
+	 * Replaces all of the values, rebuilding the tree in O(n)
+	 * @param values - data starts at index 1, values[0] is ignored. Must be the same length as the original array.
+	 */
+	public void setAll(List<T> values) {
+		if (values.size() != tree.size()) {
+			throw new IllegalArgumentException("Expected " + tree.size() + " values, got " + values.size());
+		}
+		for (int i = 0; i < values.size(); i++) {
+			tree.set(i, values.get(i));
+			if (this.values != null) {
+				this.values.set(i, values.get(i));
+			}
+		}
+		build();
+	}
+	
 	public static void main(String[] args) {
 		// data starts at index 1. ar[0] is ignored
 		List<Integer> ar = Arrays.asList(0, 5, 2, 9, -3, 5, 20, 10, -7, 2, 3, -4, 0, -2, 15, 5);
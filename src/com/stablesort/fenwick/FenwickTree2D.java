@@ -0,0 +1,144 @@
+package com.stablesort.fenwick;
+
+/**
+ * Two dimensional Fenwick Tree (Binary Index Tree) that uses addition. Point update and rectangle sum queries are both O(log n * log m).
+ * 
+ * Rather than int[][], the tree is stored in a single flattened int[], row after row, so that walking along a row stays within the same
+ * block of memory.
+ * 
+ * Just like the 1-D version, data starts at index 1, so row 0 and column 0 are ignored.
+ * 
+ * @author Andre Violentyev
+ */
+public class FenwickTree2D {
+
+	final private int[] tree;
+	final private int rows; // number of rows, including the ignored row 0
+	final private int cols; // number of columns, including the ignored column 0
+	
+	/**
+	 * creates a tree of all zeroes
+	 * @param rows - number of rows, including the ignored row 0
+	 * @param cols - number of columns, including the ignored column 0
+	 */
+	public FenwickTree2D(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.tree = new int[rows * cols];
+	}
+	
+	/**
+	 * Builds the tree in O(n * m)
+	 * @param ar - data starts at ar[1][1], row 0 and column 0 are ignored
+	 */
+	public FenwickTree2D(int[][] ar) {
+		this(ar.length, ar.length > 0 ? ar[0].length : 0);
+		
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(ar[r], 0, tree, r * cols, cols);
+		}
+		
+		// first make each row into a 1-D tree
+		for (int r = 1; r < rows; r++) {
+			int base = r * cols;
+			for (int c = 1; c < cols; c++) {
+				int p = c + (c & -c); // index to parent range
+				if (p < cols) {
+					tree[base + p] += tree[base + c];
+				}
+			}
+		}
+		
+		// then do the same over the rows, adding whole rows into their parent rows
+		for (int r = 1; r < rows; r++) {
+			int p = r + (r & -r);
+			if (p < rows) {
+				int base = r * cols;
+				int pBase = p * cols;
+				for (int c = 1; c < cols; c++) {
+					tree[pBase + c] += tree[base + c];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the sum of the rectangle from (1, 1) to (r, c), inclusive
+	 * @param r
+	 * @param c
+	 */
+	public int sum(int r, int c) {
+		int sum = 0;
+		for (; r > 0; r -= r & -r) {
+			int base = r * cols;
+			for (int j = c; j > 0; j -= j & -j) {
+				sum += tree[base + j];
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Returns the sum of the rectangle from (r1, c1) to (r2, c2), inclusive
+	 * @param r1
+	 * @param c1
+	 * @param r2
+	 * @param c2
+	 * @return
+	 */
+	public int sum(int r1, int c1, int r2, int c2) {
+		return sum(r2, c2) - sum(r1-1, c2) - sum(r2, c1-1) + sum(r1-1, c1-1);
+	}
+	
+	/**
+	 * just the value from the "original array" at (r, c)
+	 * @param r
+	 * @param c
+	 * @return
+	 */
+	public int valueAt(int r, int c) {
+		return sum(r, c, r, c);
+	}
+	
+	/**
+	 * Adds k to element at (r, c), propagating the change so that range operations still work
+	 * @param r
+	 * @param c
+	 * @param k
+	 */
+	public void add(int r, int c, int k) {
+		for (; r < rows; r += r & -r) {
+			int base = r * cols;
+			for (int j = c; j < cols; j += j & -j) {
+				tree[base + j] += k;
+			}
+		}
+	}
+	
+	/**
+	 * updates the value at (r, c)
+	 * @param r
+	 * @param c
+	 * @param value
+	 */
+	public void update(int r, int c, int value) {
+		int orig = valueAt(r, c);
+		add(r, c, value - orig);
+	}
+	
+	public static void main(String[] args) {
+		// data starts at [1][1]. Row 0 and column 0 are ignored
+		int[][] ar = new int[][]{
+			{0, 0, 0, 0, 0},
+			{0, 1, 2, 3, 4},
+			{0, 5, 6, 7, 8},
+			{0, 9, 10, 11, 12}
+		};
+		FenwickTree2D ft = new FenwickTree2D(ar);
+		System.out.println("value at (2, 3) = " + ft.valueAt(2, 3));
+		System.out.println("sum(2, 2, 3, 4) = " + ft.sum(2, 2, 3, 4));
+		
+		ft.update(3, 3, 100);
+		System.out.println("sum(2, 2, 3, 4) = " + ft.sum(2, 2, 3, 4));
+	}
+}
@@ -0,0 +1,88 @@
+package com.stablesort.fenwick;
+
+import java.util.Random;
+
+/*
+ * for testing FenwickTree2D and FenwickTree2DLong against a brute force grid, with random updates
+ */
+public class FenwickTree2DTest {
+	
+	int rows = 201; // including the ignored row 0, and neither one is a power of 2
+	int cols = 317;
+	int numTrials = 20_000;
+	
+	/**
+	 * linear running time rectangle sum, used for checking for correctness
+	 */
+	private long dumbSum(long[][] grid, int r1, int c1, int r2, int c2) {
+		long sum = 0;
+		for (int r = r1; r <= r2; r++) {
+			for (int c = c1; c <= c2; c++) {
+				sum += grid[r][c];
+			}
+		}
+		return sum;
+	}
+	
+	/**
+	 * Both trees get built from the same grid, plus FenwickTree2D is also started from all zeroes and filled in with add().
+	 * FenwickTree2DLong gets the values multiplied by a million, so that its sums go beyond the int range. Every trial checks 
+	 * a random rectangle and then makes a random update.
+	 */
+	public void testRectangleSums() {
+		final long scale = 1_000_000L;
+		Random rand = new Random();
+		int[][] ar = new int[rows][cols];
+		long[][] arLong = new long[rows][cols];
+		long[][] grid = new long[rows][cols];
+		FenwickTree2D ftAdded = new FenwickTree2D(rows, cols);
+		
+		for (int r = 1; r < rows; r++) {
+			for (int c = 1; c < cols; c++) {
+				ar[r][c] = rand.nextInt(2001) - 1000;
+				arLong[r][c] = ar[r][c] * scale;
+				grid[r][c] = ar[r][c];
+				ftAdded.add(r, c, ar[r][c]);
+			}
+		}
+		FenwickTree2D ft = new FenwickTree2D(ar);
+		FenwickTree2DLong ftLong = new FenwickTree2DLong(arLong);
+		
+		for (int t = 0; t < numTrials; t++) {
+			int r1 = rand.nextInt(rows - 1) + 1;
+			int r2 = r1 + rand.nextInt(rows - r1);
+			int c1 = rand.nextInt(cols - 1) + 1;
+			int c2 = c1 + rand.nextInt(cols - c1);
+			
+			long expected = dumbSum(grid, r1, c1, r2, c2);
+			if (expected != ft.sum(r1, c1, r2, c2) || expected != ftAdded.sum(r1, c1, r2, c2) || expected * scale != ftLong.sum(r1, c1, r2, c2)
+					|| grid[r1][c1] != ft.valueAt(r1, c1) || grid[r1][c1] * scale != ftLong.valueAt(r1, c1)) {
+				throw new RuntimeException("Mismatch: (" + r1 + ", " + c1 + ") to (" + r2 + ", " + c2 + ") --> " + expected + " <> " 
+					+ ft.sum(r1, c1, r2, c2) + " <> " + ftAdded.sum(r1, c1, r2, c2) + " <> " + ftLong.sum(r1, c1, r2, c2));
+			}
+			
+			// make a random update, half of the time with update() and the other half with add()
+			int r = rand.nextInt(rows - 1) + 1;
+			int c = rand.nextInt(cols - 1) + 1;
+			int value = rand.nextInt(2001) - 1000;
+			if (rand.nextBoolean()) {
+				grid[r][c] = value;
+				ft.update(r, c, value);
+				ftAdded.update(r, c, value);
+				ftLong.update(r, c, value * scale);
+			} else {
+				grid[r][c] += value;
+				ft.add(r, c, value);
+				ftAdded.add(r, c, value);
+				ftLong.add(r, c, value * scale);
+			}
+		}
+		
+		System.out.println("testRectangleSums: SUCCESS");
+	}
+	
+	public static void main(String[] args) {
+		FenwickTree2DTest test = new FenwickTree2DTest();
+		test.testRectangleSums();
+	}
+}
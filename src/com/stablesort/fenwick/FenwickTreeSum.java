@@ -4,18 +4,35 @@ import java.util.Arrays;
 
 /**
  * Fenwich Tree (Binary Index Tree) implementation that uses addition for its range operation
+ * 
+ * Optionally, it can keep a copy of the original values next to the tree. Then valueAt() is O(1) and update() needs only a single
+ * walk up the tree, instead of three, at the cost of doubling the memory.
+ * 
  * @author Andre Violentyev
  */
 public class FenwickTreeSum {
 
 	final private int[] tree;
+	final private int[] values; // copy of the original array, null unless keepValues is on
+	final private int topBit; // largest power of 2 that is still a valid index, used for walking the tree top-down
 	
 	/**
 	 * 
 	 * @param ar - data starts at index 1, ar[0] is ignored
 	 */
 	public FenwickTreeSum(int[] ar) {
+		this(ar, false);
+	}
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param keepValues - if TRUE, keeps a copy of the original values, making valueAt() O(1) and update() cheaper
+	 */
+	public FenwickTreeSum(int[] ar, boolean keepValues) {
 		this.tree = this.make(ar);
+		this.values = keepValues ? Arrays.copyOf(ar, ar.length) : null;
+		this.topBit = tree.length > 1 ? Integer.highestOneBit(tree.length - 1) : 0;
 	}
 	
 	/**
@@ -25,15 +42,35 @@ public class FenwickTreeSum {
 	 */
 	int[] make(int[] ar) {
 		int[] tree = Arrays.copyOf(ar, ar.length);
-		
+		build(tree);
+		return tree;
+	}
+	
+	/**
+	 * Turns the original array into the tree, in place, in O(n)
+	 * @param tree
+	 */
+	private static void build(int[] tree) {
 		for (int i = 1; i < tree.length; i++) {
 			int p = i + (i & -i); // index to parent range
 			if (p < tree.length) {
 				tree[p] = tree[p] + tree[i];
 			}
 		}
-		
-		return tree;
+	}
+	
+	/**
+	 * Reverse of build(): turns the tree back into the original array, in place, in O(n).
+	 * Going from right to left guarantees that tree[i] still holds its full range when it gets subtracted from its parent.
+	 * @param tree
+	 */
+	private static void unbuild(int[] tree) {
+		for (int i = tree.length - 1; i > 0; i--) {
+			int p = i + (i & -i); // index to parent range
+			if (p < tree.length) {
+				tree[p] = tree[p] - tree[i];
+			}
+		}
 	}
 	
 
@@ -66,6 +103,9 @@ public class FenwickTreeSum {
 	 * @return
 	 */
 	public int valueAt(int i) {
+		if (values != null) {
+			return values[i];
+		}
 		return sum(i) - sum(i-1);
 	}
 	
@@ -88,9 +128,113 @@ public class FenwickTreeSum {
 	 */
 	public void update(int i, int value) {
 		int orig = valueAt(i);
+		if (values != null) {
+			values[i] = value;
+		}
 		add(i, value - orig);
 	}
 	
+	/**
+	 * Finds the smallest index i such that sum(i) >= target, in a single O(log n) pass. Assumes none of the values are negative,
+	 * so that the prefix sums never decrease.
+	 * 
+	 * Instead of binary searching over sum(i), which would be O(log^2 n), it walks the tree from the top down. Node tree[pos + step]
+	 * covers the range (pos, pos + step], so if its value is still less than what remains of the target, then the answer lies to the
+	 * right of it and we can jump over the whole range. Otherwise the answer is inside that range and we try a smaller step.
+	 * 
+	 * @param target
+	 * @return index from 1 to n, or n+1 (i.e. tree.length) if the total sum is less than target
+	 */
+	public int lowerBound(long target) {
+		int pos = 0;
+		
+		for (int step = topBit; step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < tree.length && tree[next] < target) {
+				pos = next;
+				target -= tree[next];
+			}
+		}
+		
+		return pos + 1;
+	}
+	
+	/**
+	 * Treats the array as a multiset, where the value at index i is the number of times i occurs in it.
+	 * Then returns the k-th smallest element, in O(log n)
+	 * 
+	 * @param k - starts at 1
+	 * @return n+1 (i.e. tree.length) if the multiset has fewer than k elements
+	 */
+	public int kthSmallest(int k) {
+		return lowerBound(k);
+	}
+	
+	/**
+	 * Adds deltas[i] to the element at index i, for every i. Depending on how many of the deltas are non-zero, it either calls add()
+	 * for each one of them, which is O(k log n), or converts the tree back to the original array, adds the deltas and rebuilds it,
+	 * which is O(n).
+	 * 
+	 * @param deltas - data starts at index 1, deltas[0] is ignored. Could be shorter than the tree.
+	 */
+	public void applyAll(int[] deltas) {
+		int len = Math.min(deltas.length, tree.length);
+		if (values != null) {
+			for (int i = 1; i < len; i++) {
+				values[i] += deltas[i];
+			}
+		}
+		
+		int k = 0;
+		for (int i = 1; i < len; i++) {
+			if (deltas[i] != 0) {
+				k++;
+			}
+		}
+		
+		if (isIncremental(k, tree.length)) {
+			for (int i = 1; i < len; i++) {
+				if (deltas[i] != 0) {
+					add(i, deltas[i]);
+				}
+			}
+		} else {
+			unbuild(tree);
+			for (int i = 1; i < len; i++) {
+				tree[i] += deltas[i];
+			}
+			build(tree);
+		}
+	}
+	
+	/**
+	 * Replaces all of the values, rebuilding the tree in O(n)
+	 * @param values - data starts at index 1, values[0] is ignored. Must be the same length as the original array.
+	 */
+	public void setAll(int[] values) {
+		if (values.length != tree.length) {
+			throw new IllegalArgumentException("Expected " + tree.length + " values, got " + values.length);
+		}
+		System.arraycopy(values, 0, tree, 0, tree.length);
+		if (this.values != null) {
+			System.arraycopy(values, 0, this.values, 0, tree.length);
+		}
+		build(tree);
+	}
+	
+	/**
+	 * Decides if it's cheaper to make k separate O(log n) updates than to do an O(n) rebuild.
+	 * The rebuild makes two passes over the array, so it pays off once k * log n goes beyond roughly 2n.
+	 * 
+	 * @param k - number of updates
+	 * @param n - tree length
+	 * @return
+	 */
+	static boolean isIncremental(int k, int n) {
+		int logN = 32 - Integer.numberOfLeadingZeros(n);
+		return (long) k * logN < 2L * n;
+	}
+	
 	public static void main(String[] args) {
 		
 		// data starts at index 1. ar[0] is ignored
@@ -99,6 +243,10 @@ public class FenwickTreeSum {
 		System.out.println("value at 3 = " + ft.valueAt(3));
 		System.out.println("sum(1, 3) = " + ft.sum(1, 3));
 		
+		// counts of each value from 1 to 8, i.e. the multiset {1, 1, 3, 4, 4, 4, 8}
+		FenwickTreeSum counts = new FenwickTreeSum(new int[]{0, 2, 0, 1, 3, 0, 0, 0, 1});
+		System.out.println("lowerBound(3) = " + counts.lowerBound(3));
+		System.out.println("kthSmallest(6) = " + counts.kthSmallest(6));
 
 	}	
 }
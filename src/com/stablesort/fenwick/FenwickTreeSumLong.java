@@ -0,0 +1,203 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+
+/**
+ * Same as FenwickTreeSum, but stores long values, so sums do not overflow once they pass 2^31.
+ * 
+ * Optionally, it can run in a "checked" mode, where instead of silently wrapping around, an ArithmeticException is thrown
+ * once any of the partial sums kept in the tree goes beyond the long range. The tree nodes hold range sums, which the caller
+ * never sees directly, so the checked mode is meant for non-negative values, like counts. Then every node is at most the total
+ * and an overflow of a node really is an overflow of the total. With negative values mixed in, a node can overflow even though 
+ * every prefix sum fits into a long, e.g. {0, MIN, 0, 0, 0, MAX, 1}, and the checked mode would throw on valid input.
+ * 
+ * @author Andre Violentyev
+ */
+public class FenwickTreeSumLong {
+	public enum Option {
+		/**
+		 * throw ArithmeticException on overflow, instead of silently wrapping around
+		 */
+		checked,
+		/**
+		 * build the tree directly inside of the passed in long[], without making a copy. The caller should not use that array afterwards.
+		 */
+		inPlace
+	}
+
+	final private long[] tree;
+	final private boolean checked;
+	final private int topBit; // largest power of 2 that is still a valid index, used for walking the tree top-down
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param opt - Option.checked and/or Option.inPlace
+	 */
+	public FenwickTreeSumLong(long[] ar, Option... opt) {
+		this.checked = has(opt, Option.checked);
+		this.tree = this.make(has(opt, Option.inPlace) ? ar : Arrays.copyOf(ar, ar.length));
+		this.topBit = tree.length > 1 ? Integer.highestOneBit(tree.length - 1) : 0;
+	}
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param opt - Option.checked. Option.inPlace is ignored since int[] has to be widened into a new array anyway.
+	 */
+	public FenwickTreeSumLong(int[] ar, Option... opt) {
+		this.checked = has(opt, Option.checked);
+		
+		long[] tree = new long[ar.length];
+		for (int i = 0; i < ar.length; i++) {
+			tree[i] = ar[i];
+		}
+		
+		this.tree = this.make(tree);
+		this.topBit = tree.length > 1 ? Integer.highestOneBit(tree.length - 1) : 0;
+	}
+	
+	private static boolean has(Option[] opt, Option o) {
+		for (Option x : opt) {
+			if (x == o) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * a + b, but throws ArithmeticException on overflow if running in the checked mode
+	 */
+	private long plus(long a, long b) {
+		return checked ? Math.addExact(a, b) : a + b;
+	}
+	
+	/**
+	 * Builds the tree in place, in O(n). Assumes data starts at index 1. Value at index zero is ignored.
+	 * @param tree
+	 * @return
+	 */
+	long[] make(long[] tree) {
+		for (int i = 1; i < tree.length; i++) {
+			int p = i + (i & -i); // index to parent range
+			if (p < tree.length) {
+				tree[p] = plus(tree[p], tree[i]);
+			}
+		}
+		
+		return tree;
+	}
+
+	/**
+	 * Returns the sum from index 1 to i (inclusive)
+	 * @param i
+	 */
+	public long sum(int i) {	
+	    long sum = 0;
+	    while (i > 0) { 
+	        sum = plus(sum, tree[i]);
+	        i -= i & -i; // zeroes the least significant bit of value 1
+	    }
+	    return sum;
+	}
+	
+	/**
+	 * returns the sum from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public long sum(int i, int j) {
+		return checked ? Math.subtractExact(sum(j), sum(i-1)) : sum(j) - sum(i-1);
+	}
+	
+	/**
+	 * just the value from the "original array" at index i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(int i) {
+		return sum(i, i);
+	}
+	
+	/**
+	 * Adds k to element at index i, propagating the change to the right end of the tree so that range operations still work.
+	 * In the checked mode, the whole path is checked for overflow before anything is written, so on an ArithmeticException
+	 * the tree is left unchanged.
+	 * @param i
+	 * @param k
+	 */
+	public void add(int i, long k) {
+		if (checked) {
+			for (int j = i; j < tree.length; j += j & -j) {
+				Math.addExact(tree[j], k);
+			}
+		}
+		
+	    while (i < tree.length) { 
+	        tree[i] += k;
+	        i += i & -i; // take the least significant set bit and add to i
+	    }
+	}
+	
+	/**
+	 * updates the value at index i. Same as add(), leaves the tree unchanged if it throws ArithmeticException
+	 * @param i
+	 * @param value
+	 */
+	public void update(int i, long value) {
+		long orig = valueAt(i);
+		add(i, checked ? Math.subtractExact(value, orig) : value - orig);
+	}
+	
+	/**
+	 * Finds the smallest index i such that sum(i) >= target, in a single O(log n) pass. Assumes none of the values are negative.
+	 * See FenwickTreeSum.lowerBound() for how it works.
+	 * 
+	 * @param target
+	 * @return index from 1 to n, or n+1 (i.e. tree.length) if the total sum is less than target
+	 */
+	public int lowerBound(long target) {
+		int pos = 0;
+		
+		for (int step = topBit; step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < tree.length && tree[next] < target) {
+				pos = next;
+				target -= tree[next];
+			}
+		}
+		
+		return pos + 1;
+	}
+	
+	/**
+	 * Treats the array as a multiset, where the value at index i is the number of times i occurs in it.
+	 * Then returns the k-th smallest element, in O(log n)
+	 * 
+	 * @param k - starts at 1
+	 * @return n+1 (i.e. tree.length) if the multiset has fewer than k elements
+	 */
+	public int kthSmallest(long k) {
+		return lowerBound(k);
+	}
+	
+	public static void main(String[] args) {
+		
+		// data starts at index 1. ar[0] is ignored
+		long ar[] = new long[]{0, 5, 2, 9, -3, 5, 20, 10, -7, 2, 3, -4, 0, -2, 15, 5};		
+		FenwickTreeSumLong ft = new FenwickTreeSumLong(ar);
+		System.out.println("value at 3 = " + ft.valueAt(3));
+		System.out.println("sum(1, 3) = " + ft.sum(1, 3));
+		
+		ft.update(2, 3_000_000_000L);
+		System.out.println("sum(1, 3) = " + ft.sum(1, 3));
+		
+		try {
+			new FenwickTreeSumLong(new long[]{0, Long.MAX_VALUE, 1}, Option.checked, Option.inPlace);
+		} catch (ArithmeticException e) {
+			System.out.println("overflow caught: " + e.getMessage());
+		}
+	}	
+}
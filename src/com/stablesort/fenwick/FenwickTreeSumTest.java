@@ -0,0 +1,246 @@
+package com.stablesort.fenwick;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.stablesort.function.ReversableOperator;
+import com.stablesort.util.Rand;
+import com.stablesort.util.StopWatch;
+
+/*
+ * for testing FenwickTreeSum with and without keeping a copy of the original values, the applyAll()/setAll() batch updates,
+ * and lowerBound()/kthSmallest() on both FenwickTreeSum and FenwickTreeSumLong
+ */
+public class FenwickTreeSumTest {
+	
+	int arLen = 1_000_000;
+	
+	/**
+	 * makes the same random updates on both kinds of trees, and on a plain array, and checks that they all agree
+	 */
+	public void testKeepValues() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		FenwickTreeSum ft = new FenwickTreeSum(ar);
+		FenwickTreeSum ftValues = new FenwickTreeSum(ar, true);
+		Random r = new Random();
+		
+		for (int t = 0; t < 100_000; t++) {
+			int i = r.nextInt(arLen - 1) + 1;
+			int value = r.nextInt(arLen);
+			
+			ar[i] = value;
+			ft.update(i, value);
+			ftValues.update(i, value);
+			
+			int j = r.nextInt(arLen - 1) + 1;
+			if (ar[j] != ft.valueAt(j) || ar[j] != ftValues.valueAt(j) || ft.sum(j) != ftValues.sum(j)) {
+				throw new RuntimeException("Mismatch at " + j + ": " + ar[j] + " <> " + ft.valueAt(j) + " <> " + ftValues.valueAt(j));
+			}
+		}
+		
+		System.out.println("testKeepValues: SUCCESS");
+	}
+	
+	/**
+	 * linear running time lowerBound(), used for checking for correctness
+	 * @param ar - data starts at index 1
+	 * @param target
+	 * @return smallest i such that ar[1] + ... + ar[i] >= target, or ar.length if there is none
+	 */
+	private int dumbLowerBound(int[] ar, long target) {
+		long sum = 0;
+		for (int i = 1; i < ar.length; i++) {
+			sum += ar[i];
+			if (sum >= target) {
+				return i;
+			}
+		}
+		return ar.length;
+	}
+	
+	/**
+	 * tests lowerBound() and kthSmallest() of FenwickTreeSum and FenwickTreeSumLong against a linear prefix scan, with updates.
+	 * The lengths are mostly not powers of 2, and there are plenty of zeros so that the prefix sums have flat stretches.
+	 * The targets include ones that are not positive and ones above the total. FenwickTreeSumLong gets all of the values 
+	 * multiplied by a billion, so that its sums go well beyond the int range, which does not change any of the answers.
+	 */
+	public void testLowerBound() {
+		final long scale = 1_000_000_000L;
+		Random r = new Random();
+		
+		for (int len : new int[]{1, 2, 3, 5, 17, 100, 1000, 4097, 100_003}) {
+			int[] ar = new int[len];
+			long[] arLong = new long[len];
+			long total = 0;
+			for (int i = 1; i < len; i++) {
+				ar[i] = r.nextInt(3) == 0 ? 0 : r.nextInt(5);
+				arLong[i] = ar[i] * scale;
+				total += ar[i];
+			}
+			FenwickTreeSum ft = new FenwickTreeSum(ar);
+			FenwickTreeSumLong ftLong = new FenwickTreeSumLong(arLong);
+			
+			for (int t = 0; t < 1000; t++) {
+				long target;
+				switch (t % 4) {
+				case 0: target = -r.nextInt(3); break; // not positive
+				case 1: target = total + 1 + r.nextInt(3); break; // above the total
+				default: target = (long) (r.nextDouble() * (total + 1)); // anywhere from 0 to the total
+				}
+				
+				int expected = dumbLowerBound(ar, target);
+				if (expected != ft.lowerBound(target) || expected != ftLong.lowerBound(target * scale)) {
+					throw new RuntimeException("lowerBound mismatch, len = " + len + ", target = " + target + ": " + expected + " <> " 
+						+ ft.lowerBound(target) + " <> " + ftLong.lowerBound(target * scale));
+				}
+				if (target >= 1 && (expected != ft.kthSmallest((int) target) || expected != ftLong.kthSmallest(target * scale))) {
+					throw new RuntimeException("kthSmallest mismatch, len = " + len + ", k = " + target + ": " + expected);
+				}
+				
+				if (len > 1) { // make a random update, keeping all of the values non-negative
+					int i = r.nextInt(len - 1) + 1;
+					int value = r.nextInt(5);
+					total += value - ar[i];
+					ar[i] = value;
+					ft.update(i, value);
+					ftLong.update(i, value * scale);
+				}
+			}
+		}
+		
+		System.out.println("testLowerBound: SUCCESS");
+	}
+	
+	/**
+	 * applies alternating sparse and dense batches through applyAll() on FenwickTreeSum (with and without keepValues), FenwickTreeXor 
+	 * and the generic FenwickTree, and then replaces everything with setAll(). The sparse batches go through the separate updates
+	 * and the dense ones through the rebuild, see FenwickTreeSum.isIncremental(). After each step all of the trees are checked 
+	 * against plain arrays.
+	 */
+	public void testApplyAll() {
+		int len = arLen / 10;
+		int[] ar = Rand.getRandIntAr(len);
+		boolean[] bits = new boolean[len];
+		List<Integer> list = new ArrayList<>(len);
+		for (int i = 0; i < len; i++) {
+			bits[i] = ar[i] % 2 == 1;
+			list.add(ar[i]);
+		}
+		
+		FenwickTreeSum ft = new FenwickTreeSum(ar);
+		FenwickTreeSum ftValues = new FenwickTreeSum(ar, true);
+		FenwickTreeXor ftXor = new FenwickTreeXor(bits);
+		FenwickTree<Integer> ftGeneric = new FenwickTree<>(list, new ReversableOperator<Integer>() {
+			@Override
+			public Integer apply(Integer a, Integer b) {
+				return a + b;
+			}
+			@Override
+			public Integer undo(Integer c, Integer b) {
+				return c - b;
+			}
+		}, true);
+		Random r = new Random();
+		
+		for (int round = 0; round < 6; round++) {
+			boolean sparse = round % 2 == 0;
+			int[] deltas = new int[sparse ? len / 2 : len]; // sparse batches are also shorter than the tree
+			int k = 0;
+			for (int i = 1; i < deltas.length; i++) {
+				if (!sparse || r.nextInt(10_000) == 0) {
+					deltas[i] = r.nextInt(100) + 1;
+					k++;
+				}
+			}
+			if (FenwickTreeSum.isIncremental(k, len) != sparse) {
+				throw new RuntimeException("batch of " + k + " did not take the intended path");
+			}
+			
+			boolean[] xorDeltas = new boolean[deltas.length];
+			List<Integer> listDeltas = new ArrayList<>(deltas.length);
+			for (int i = 0; i < deltas.length; i++) {
+				ar[i] += deltas[i];
+				xorDeltas[i] = deltas[i] % 2 == 1;
+				bits[i] ^= xorDeltas[i];
+				listDeltas.add(deltas[i] != 0 ? deltas[i] : null);
+			}
+			
+			ft.applyAll(deltas);
+			ftValues.applyAll(deltas);
+			ftXor.applyAll(xorDeltas);
+			ftGeneric.applyAll(listDeltas);
+			checkAll(ar, bits, ft, ftValues, ftXor, ftGeneric, "applyAll(" + (sparse ? "sparse" : "dense") + ")");
+		}
+		
+		ar = Rand.getRandIntAr(len);
+		list.clear();
+		for (int i = 0; i < len; i++) {
+			bits[i] = ar[i] % 2 == 1;
+			list.add(ar[i]);
+		}
+		ft.setAll(ar);
+		ftValues.setAll(ar);
+		ftXor.setAll(bits);
+		ftGeneric.setAll(list);
+		checkAll(ar, bits, ft, ftValues, ftXor, ftGeneric, "setAll()");
+		
+		System.out.println("testApplyAll: SUCCESS");
+	}
+	
+	/**
+	 * checks every value and every prefix sum (or xor) of the trees against the plain arrays
+	 */
+	private void checkAll(int[] ar, boolean[] bits, FenwickTreeSum ft, FenwickTreeSum ftValues, FenwickTreeXor ftXor, 
+			FenwickTree<Integer> ftGeneric, String step) {
+		int sum = 0;
+		boolean xor = false;
+		for (int i = 1; i < ar.length; i++) {
+			sum += ar[i];
+			xor ^= bits[i];
+			if (ar[i] != ft.valueAt(i) || ar[i] != ftValues.valueAt(i) || ar[i] != ftGeneric.valueAt(i) || bits[i] != ftXor.valueAt(i)
+					|| sum != ft.sum(i) || sum != ftValues.sum(i) || sum != ftGeneric.query(i) || xor != ftXor.xor(i)) {
+				throw new RuntimeException(step + " mismatch at " + i + ": " + ar[i] + " <> " + ft.valueAt(i) + " <> " + ftValues.valueAt(i) 
+					+ " <> " + ftGeneric.valueAt(i));
+			}
+		}
+	}
+	
+	/**
+	 * update heavy workload: checks how much faster update() is when the original values are kept
+	 */
+	public void comparePerf() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		FenwickTreeSum ft = new FenwickTreeSum(ar);
+		FenwickTreeSum ftValues = new FenwickTreeSum(ar, true);
+		
+		int numTrials = 10_000_000;
+		int[] idx = Rand.getRandIntAr(numTrials);
+		for (int t = 0; t < numTrials; t++) {
+			idx[t] = idx[t] % (arLen - 1) + 1;
+		}
+		
+		StopWatch sw = new StopWatch();
+		for (int t = 0; t < numTrials; t++) {
+			ft.update(idx[t], t);
+		}
+		long tPlain = sw.poll();
+		
+		for (int t = 0; t < numTrials; t++) {
+			ftValues.update(idx[t], t);
+		}
+		long tValues = sw.poll();
+		
+		System.out.println("FenwickTreeSum update() took " + tPlain);
+		System.out.println("FenwickTreeSum(keepValues) update() took " + tValues);
+		System.out.println("dummy = " + (ft.sum(arLen - 1) - ftValues.sum(arLen - 1)));
+	}
+	
+	public static void main(String[] args) {
+		FenwickTreeSumTest test = new FenwickTreeSumTest();
+		test.testKeepValues();
+		test.testApplyAll();
+		test.testLowerBound();
+		test.comparePerf();
+	}
+}
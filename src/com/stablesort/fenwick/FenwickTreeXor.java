@@ -21,15 +21,34 @@ public class FenwickTreeXor {
 	 */
 	boolean[] make(boolean[] ar) {
 		boolean[] tree = Arrays.copyOf(ar, ar.length);
-		
+		build(tree);
+		return tree;
+	}
+	
+	/**
+	 * Turns the original array into the tree, in place, in O(n)
+	 * @param tree
+	 */
+	private static void build(boolean[] tree) {
 		for (int i = 1; i < tree.length; i++) {
 			int p = i + (i & -i); // index to parent range
 			if (p < tree.length) {
 				tree[p] = tree[p] ^ tree[i];
 			}
 		}
-		
-		return tree;
+	}
+	
+	/**
+	 * Reverse of build(): turns the tree back into the original array, in place, in O(n)
+	 * @param tree
+	 */
+	private static void unbuild(boolean[] tree) {
+		for (int i = tree.length - 1; i > 0; i--) {
+			int p = i + (i & -i); // index to parent range
+			if (p < tree.length) {
+				tree[p] = tree[p] ^ tree[i];
+			}
+		}
 	}
 
 	/**
@@ -76,6 +95,49 @@ public class FenwickTreeXor {
 	    }
 	}
 	
+	/**
+	 * XORs deltas[i] with the element at index i, for every i. Depending on how many of the deltas are TRUE, it either calls update()
+	 * for each one of them, which is O(k log n), or converts the tree back to the original array, applies the deltas and rebuilds it,
+	 * which is O(n).
+	 * 
+	 * @param deltas - data starts at index 1, deltas[0] is ignored. Could be shorter than the tree.
+	 */
+	public void applyAll(boolean[] deltas) {
+		int len = Math.min(deltas.length, tree.length);
+		int k = 0;
+		for (int i = 1; i < len; i++) {
+			if (deltas[i]) {
+				k++;
+			}
+		}
+		
+		if (FenwickTreeSum.isIncremental(k, tree.length)) {
+			for (int i = 1; i < len; i++) {
+				if (deltas[i]) {
+					update(i, true);
+				}
+			}
+		} else {
+			unbuild(tree);
+			for (int i = 1; i < len; i++) {
+				tree[i] = tree[i] ^ deltas[i];
+			}
+			build(tree);
+		}
+	}
+	
+	/**
+	 * Replaces all of the values, rebuilding the tree in O(n)
+	 * @param values - data starts at index 1, values[0] is ignored. Must be the same length as the original array.
+	 */
+	public void setAll(boolean[] values) {
+		if (values.length != tree.length) {
+			throw new IllegalArgumentException("Expected " + tree.length + " values, got " + values.length);
+		}
+		System.arraycopy(values, 0, tree, 0, tree.length);
+		build(tree);
+	}
+	
 	public void printIsOn() {
 		
 		System.out.println("-----------------------------------------------------------");
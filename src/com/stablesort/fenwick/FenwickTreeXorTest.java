@@ -36,6 +36,7 @@ public class FenwickTreeXorTest {
 	private boolean test(int len) {
 		boolean[] ftAr = new boolean[len];
 		FenwickTreeXor ft = new FenwickTreeXor(ftAr);
+		FenwickTreeXorPacked packed = new FenwickTreeXorPacked(ftAr);
 				
 		boolean[] tar = new boolean[len];
 		Random r = new Random();
@@ -53,10 +54,11 @@ public class FenwickTreeXorTest {
 			
 			ft.update(start, true);
 			ft.update(end+1, true);
+			packed.toggleRange(start, end);
 			
 			
 			for (int k = 1; k < len; k++) {
-				if (tar[k] != ft.xor(k)) {
+				if (tar[k] != ft.xor(k) || tar[k] != packed.xor(k)) {
 					System.out.println(">>>>>>>>>>>>>>error found");
 					this.testPrint(tar);
 					ft.printIsOn();
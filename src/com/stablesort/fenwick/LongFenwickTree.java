@@ -0,0 +1,117 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+
+import com.stablesort.function.LongReversableOperator;
+
+/**
+ * Same as the generic FenwickTree, but stores the data in long[] and uses LongReversableOperator, so there is no boxing.
+ * Works with any "reversable" operator, such as addition, multiplication and xor. Neither query() nor update() allocate any objects.
+ * 
+ * @author Andre Violentyev
+ */
+public class LongFenwickTree {
+
+	final private long[] tree;
+	final private long identity;
+	final private LongReversableOperator f;
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 * @param identity - value that does not change anything when applied, e.g. 0 for addition and xor, 1 for multiplication
+	 * @param f - the operator should be reversable. For example, the reverse of c = add(a, b) is a = subtract(c, b)
+	 */
+	public LongFenwickTree(long[] ar, long identity, LongReversableOperator f) {
+		this.identity = identity;
+		this.f = f;
+		
+		tree = Arrays.copyOf(ar, ar.length);
+		
+		for (int i = 1; i < tree.length; i++) {
+			int p = i + (i & -i); // index to parent range
+			if (p < tree.length) {
+				tree[p] = f.apply(tree[p], tree[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the f(tree[i]) from index 1 to i, inclusive
+	 * @param i - inclusive
+	 */
+	public long query(int i) {
+	    long q = identity;
+	    while (i > 0) {
+	    	q = f.apply(q, tree[i]);
+	        i -= i & -i; // zeroes the least significant bit of value 1
+	    }
+	    return q;
+	}
+	
+	/**
+	 * returns the f() from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public long query(int i, int j) {
+		return f.undo(query(j), query(i-1));
+	}
+	
+	/**
+	 * just the value from the "original array" at index i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(int i) {
+		return f.undo(query(i), query(i-1));
+	}
+	
+	/**
+	 * Applies k to element at index i, propagating the change to the right end of the tree so that range operations still work
+	 * @param i
+	 * @param k
+	 */
+	private void apply(int i, long k) {	
+		while (i < tree.length) { 
+	        tree[i] = f.apply(tree[i], k); // example: tree[i] += k;
+	        i += i & -i; // take the least significant set bit and add to i
+	    }
+	}
+	
+	/**
+	 * updates the value at index i
+	 * @param i
+	 * @param value
+	 */
+	public void update(int i, long value) {
+		long orig = valueAt(i);
+		apply(i, f.undo(value, orig));
+	}
+	
+	public static void main(String[] args) {
+		// data starts at index 1. ar[0] is ignored
+		long[] ar = new long[]{0, 5, 2, 9, -3, 5, 20, 10, -7, 2, 3, -4, 0, -2, 15, 5};
+				
+		LongReversableOperator o = new LongReversableOperator() {
+			@Override
+			public long apply(long a, long b) {
+				return a + b;
+			}
+
+			@Override
+			public long undo(long c, long b) {
+				return c - b;
+			}		
+		};
+		
+		LongFenwickTree ft = new LongFenwickTree(ar, 0, o);
+		
+		System.out.println("value at 3 = " + ft.valueAt(3));
+		System.out.println("sum(1, 3) = " + ft.query(1, 3));
+		
+		ft.update(2, 20);
+		System.out.println("sum(1, 3) = " + ft.query(1, 3));
+	}	
+}
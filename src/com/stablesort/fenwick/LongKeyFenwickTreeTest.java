@@ -0,0 +1,155 @@
+package com.stablesort.fenwick;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+
+/*
+ * for testing SparseFenwickTreeSum and CompressedFenwickTreeSum against a TreeMap, including the keys at the ends of the long range
+ */
+public class LongKeyFenwickTreeTest {
+	
+	int numKeys = 2_000;
+	int numTrials = 50_000;
+	Random r = new Random();
+	
+	/**
+	 * naive sum of the values with keys from lo to hi (inclusive)
+	 */
+	private long dumbSum(TreeMap<Long, Long> map, long lo, long hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		long sum = 0;
+		for (long v : map.subMap(lo, true, hi, true).values()) {
+			sum += v;
+		}
+		return sum;
+	}
+	
+	/**
+	 * random query bound: usually an existing key or its neighbor, sometimes a random or an extreme long
+	 */
+	private long randomBound(long[] keys) {
+		switch (r.nextInt(6)) {
+		case 0: return r.nextLong();
+		case 1: return r.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+		case 2: return keys[r.nextInt(keys.length)] - 1; // may wrap around, which is still a valid bound
+		case 3: return keys[r.nextInt(keys.length)] + 1;
+		default: return keys[r.nextInt(keys.length)];
+		}
+	}
+	
+	/**
+	 * distinct keys: small ones, random ones spread over the whole range and the given edges
+	 */
+	private long[] randomKeys(boolean nonNegative, long... edges) {
+		long[] keys = new long[numKeys];
+		int i = 0;
+		for (long e : edges) {
+			keys[i++] = e;
+		}
+		while (i < numKeys) {
+			long key = r.nextBoolean() ? r.nextInt(1000) : r.nextLong();
+			keys[i++] = nonNegative ? key & Long.MAX_VALUE : key;
+		}
+		return Arrays.stream(keys).distinct().sorted().toArray();
+	}
+	
+	private void expectRejected(Runnable op, String what) {
+		try {
+			op.run();
+		} catch (IllegalArgumentException e) {
+			return; // expected
+		}
+		throw new RuntimeException(what + " was not rejected");
+	}
+	
+	public void testSparse() {
+		long[] keys = randomKeys(true, 0, 1, Long.MAX_VALUE - 1, 1L << 62);
+		TreeMap<Long, Long> map = new TreeMap<>();
+		SparseFenwickTreeSum ft = new SparseFenwickTreeSum(keys.length);
+		
+		for (int t = 0; t < numTrials; t++) {
+			long key = keys[r.nextInt(keys.length)];
+			long k = r.nextInt(2001) - 1000;
+			ft.add(key, k);
+			map.merge(key, k, Long::sum);
+			
+			long lo = randomBound(keys);
+			long hi = randomBound(keys);
+			if (dumbSum(map, lo, hi) != ft.sum(lo, hi)) {
+				throw new RuntimeException("sum(" + lo + ", " + hi + "): " + dumbSum(map, lo, hi) + " <> " + ft.sum(lo, hi));
+			}
+			if (dumbSum(map, Long.MIN_VALUE, hi) != ft.sum(hi)) {
+				throw new RuntimeException("sum(" + hi + "): " + dumbSum(map, Long.MIN_VALUE, hi) + " <> " + ft.sum(hi));
+			}
+			if (map.getOrDefault(key, 0L) != ft.valueAt(key)) {
+				throw new RuntimeException("valueAt(" + key + "): " + map.get(key) + " <> " + ft.valueAt(key));
+			}
+		}
+		
+		long total = dumbSum(map, 0, Long.MAX_VALUE);
+		if (total != ft.sum(Long.MIN_VALUE, Long.MAX_VALUE) || total != ft.sum(Long.MAX_VALUE)) {
+			throw new RuntimeException("total mismatch: " + total + " <> " + ft.sum(Long.MIN_VALUE, Long.MAX_VALUE));
+		}
+		if (ft.sum(Long.MAX_VALUE, Long.MIN_VALUE) != 0 || ft.sum(5, 4) != 0 || ft.sum(-1) != 0) {
+			throw new RuntimeException("empty range should sum to 0");
+		}
+		expectRejected(() -> ft.add(-1, 1), "negative key");
+		expectRejected(() -> ft.add(Long.MAX_VALUE, 1), "Long.MAX_VALUE key");
+		
+		System.out.println("testSparse: SUCCESS");
+	}
+	
+	public void testCompressed() {
+		long[] keys = randomKeys(false, Long.MIN_VALUE, Long.MIN_VALUE + 1, -1, 0, Long.MAX_VALUE - 1, Long.MAX_VALUE);
+		int[] values = new int[keys.length];
+		TreeMap<Long, Long> map = new TreeMap<>();
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = r.nextInt(2001) - 1000;
+			map.put(keys[i], (long) values[i]);
+		}
+		CompressedFenwickTreeSum ft = new CompressedFenwickTreeSum(keys, values);
+		
+		for (int t = 0; t < numTrials; t++) {
+			long key = keys[r.nextInt(keys.length)];
+			int k = r.nextInt(2001) - 1000;
+			ft.add(key, k);
+			map.merge(key, (long) k, Long::sum);
+			
+			long lo = randomBound(keys);
+			long hi = randomBound(keys);
+			if (dumbSum(map, lo, hi) != ft.sum(lo, hi)) {
+				throw new RuntimeException("sum(" + lo + ", " + hi + "): " + dumbSum(map, lo, hi) + " <> " + ft.sum(lo, hi));
+			}
+			long q = randomBound(keys);
+			if (map.getOrDefault(q, 0L) != ft.valueAt(q)) {
+				throw new RuntimeException("valueAt(" + q + "): " + map.get(q) + " <> " + ft.valueAt(q));
+			}
+		}
+		
+		long total = dumbSum(map, Long.MIN_VALUE, Long.MAX_VALUE);
+		if (total != ft.sum(Long.MIN_VALUE, Long.MAX_VALUE)) {
+			throw new RuntimeException("total mismatch: " + total + " <> " + ft.sum(Long.MIN_VALUE, Long.MAX_VALUE));
+		}
+		if (ft.sum(Long.MAX_VALUE, Long.MIN_VALUE) != 0) {
+			throw new RuntimeException("empty range should sum to 0");
+		}
+		
+		long missing = 12345;
+		while (map.containsKey(missing)) {
+			missing++;
+		}
+		long unknown = missing;
+		expectRejected(() -> ft.add(unknown, 1), "unknown key");
+		
+		System.out.println("testCompressed: SUCCESS");
+	}
+	
+	public static void main(String[] args) {
+		LongKeyFenwickTreeTest test = new LongKeyFenwickTreeTest();
+		test.testSparse();
+		test.testCompressed();
+	}
+}
@@ -0,0 +1,231 @@
+package com.stablesort.fenwick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Fenwick Tree (Binary Index Tree) that uses addition, same as FenwickTreeSum, but the tree is kept in a memory mapped file
+ * rather than on the heap. Indexes are long, so it can go well beyond the 2^31 array limit.
+ * 
+ * Since the tree lives in the file, it survives restarts: opening an existing file simply maps it back in, without any rebuilding.
+ * 
+ * A single MappedByteBuffer can not be larger than 2GB, so the file is mapped in segments of 2^27 longs (1GB) each.
+ * The file starts with a 16 byte header: a magic number and the number of nodes n. Then node i lives at byte offset 16 + i * 8, 
+ * and just like with the other trees, node 0 is never used. The magic number is only written once the tree is completely built,
+ * so reopening a file that is empty, truncated, half built or something else altogether is rejected.
+ * 
+ * @author Andre Violentyev
+ */
+public class MappedFenwickTree implements Closeable {
+	
+	private static final int SEGMENT_BITS = 27; // 2^27 longs per segment
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	private static final long MAGIC = 0x5354_4645_4E57_4B31L; // "STFENWK1"
+	private static final int HEADER_SIZE = 16; // magic, n
+
+	final private RandomAccessFile file;
+	final private MappedByteBuffer[] segments;
+	final private long n; // number of nodes, including the ignored node 0
+	
+	/**
+	 * Opens the tree stored in the file. If the file does not exist, it gets created with all of the values set to zero.
+	 * 
+	 * @param path
+	 * @param n - number of elements, including the ignored element 0. Only used if the file does not exist yet.
+	 * @throws IOException
+	 */
+	public MappedFenwickTree(Path path, long n) throws IOException {
+		this(path, n, null);
+	}
+	
+	/**
+	 * Opens the tree stored in the file. If the file does not exist, it gets created and the tree is built from 'values' 
+	 * in a single O(n) pass over the file, rather than with n calls to add(), which would be O(n log n).
+	 * 
+	 * @param path
+	 * @param n - number of elements, including the ignored element 0. Only used if the file does not exist yet.
+	 * @param values - gives the initial value at each index from 1 to n - 1. Only used if the file does not exist yet. 
+	 * 		If null, all of the values are zero.
+	 * @throws IOException
+	 */
+	public MappedFenwickTree(Path path, long n, LongUnaryOperator values) throws IOException {
+		boolean exists = Files.exists(path);
+		this.file = new RandomAccessFile(path.toFile(), "rw");
+		
+		if (exists) {
+			this.n = readHeader(file, path);
+		} else {
+			this.n = n;
+			file.setLength(HEADER_SIZE + n * 8); // on most file systems this makes a sparse file, so nothing is written yet
+			file.seek(8);
+			file.writeLong(n); // the magic number stays 0 until the tree is built
+		}
+		
+		FileChannel channel = file.getChannel();
+		int numSegments = (int) ((this.n + SEGMENT_MASK) >>> SEGMENT_BITS);
+		segments = new MappedByteBuffer[numSegments];
+		
+		for (int s = 0; s < numSegments; s++) {
+			long start = (long) s << SEGMENT_BITS;
+			long size = Math.min(SEGMENT_MASK + 1, this.n - start);
+			segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + start * 8, size * 8);
+		}
+		
+		if (!exists) {
+			if (values != null) {
+				build(values);
+				force();
+			}
+			file.seek(0);
+			file.writeLong(MAGIC);
+		}
+	}
+	
+	/**
+	 * Checks that the file holds a completely built tree, closing the file if it does not
+	 * @return number of nodes, including the ignored node 0
+	 */
+	private static long readHeader(RandomAccessFile file, Path path) throws IOException {
+		long length = file.length();
+		long magic = 0;
+		long n = -1;
+		if (length >= HEADER_SIZE) {
+			file.seek(0);
+			magic = file.readLong();
+			n = file.readLong();
+		}
+		
+		if (magic != MAGIC || n < 0 || length != HEADER_SIZE + n * 8) {
+			file.close();
+			throw new IllegalArgumentException(path + " is not a completely built MappedFenwickTree file, or it has been truncated");
+		}
+		return n;
+	}
+	
+	/**
+	 * Same as FenwickTreeSum.make(), but the values are folded in during the same pass. By the time node i is reached, all of the 
+	 * nodes below it have already added themselves into it, so it is complete and can be added into its parent range.
+	 */
+	private void build(LongUnaryOperator values) {
+		for (long i = 1; i < n; i++) {
+			long sum = get(i) + values.applyAsLong(i);
+			set(i, sum);
+			long p = i + (i & -i); // index to parent range
+			if (p < n) {
+				set(p, get(p) + sum);
+			}
+		}
+	}
+	
+	/**
+	 * @return number of elements, including the ignored element 0
+	 */
+	public long length() {
+		return n;
+	}
+	
+	private long get(long i) {
+		return segments[(int) (i >>> SEGMENT_BITS)].getLong((int) (i & SEGMENT_MASK) << 3);
+	}
+	
+	private void set(long i, long value) {
+		segments[(int) (i >>> SEGMENT_BITS)].putLong((int) (i & SEGMENT_MASK) << 3, value);
+	}
+
+	/**
+	 * Returns the sum from index 1 to i (inclusive)
+	 * @param i
+	 */
+	public long sum(long i) {
+	    long sum = 0;
+	    while (i > 0) { 
+	        sum += get(i);
+	        i -= i & -i; // zeroes the least significant bit of value 1
+	    }
+	    return sum;
+	}
+	
+	/**
+	 * returns the sum from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public long sum(long i, long j) {
+		return sum(j) - sum(i-1);
+	}
+	
+	/**
+	 * just the value from the "original array" at index i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(long i) {
+		return sum(i) - sum(i-1);
+	}
+	
+	/**
+	 * Adds k to element at index i, propagating the change to the right end of the tree so that range operations still work
+	 * @param i
+	 * @param k
+	 */
+	public void add(long i, long k) {	
+	    while (i < n) { 
+	        set(i, get(i) + k);
+	        i += i & -i; // take the least significant set bit and add to i
+	    }
+	}
+	
+	/**
+	 * updates the value at index i
+	 * @param i
+	 * @param value
+	 */
+	public void update(long i, long value) {
+		long orig = valueAt(i);
+		add(i, value - orig);
+	}
+	
+	/**
+	 * Writes any changes out to the file
+	 */
+	public void force() {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+	}
+	
+	/**
+	 * Flushes the changes and closes the file. The mapped segments themselves are released once they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		file.close();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		Path path = Files.createTempFile("fenwick", ".bin");
+		Files.delete(path); // so that the constructor creates it
+		
+		try (MappedFenwickTree ft = new MappedFenwickTree(path, 10_000_000, i -> i % 10)) {
+			ft.update(3, 9);
+			ft.update(9_999_999, 50);
+			System.out.println("sum(1, 3) = " + ft.sum(1, 3));
+		}
+		
+		// reopen the same file, no rebuilding needed
+		try (MappedFenwickTree ft = new MappedFenwickTree(path, 0)) {
+			System.out.println("length = " + ft.length());
+			System.out.println("total = " + ft.sum(ft.length() - 1));
+		}
+		
+		Files.delete(path);
+	}
+}
@@ -0,0 +1,120 @@
+package com.stablesort.fenwick;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/*
+ * for testing that MappedFenwickTree survives being closed and reopened, and that it rejects files it did not write
+ */
+public class MappedFenwickTreeTest {
+	
+	int n = 1_000_003; // including the ignored element 0, not a power of 2
+	
+	/**
+	 * checks every value and every prefix sum of the tree against the plain array
+	 */
+	private void checkAll(MappedFenwickTree ft, long[] ar, String step) {
+		if (ft.length() != ar.length) {
+			throw new RuntimeException(step + ": length " + ft.length() + " <> " + ar.length);
+		}
+		long sum = 0;
+		for (int i = 1; i < ar.length; i++) {
+			sum += ar[i];
+			if (sum != ft.sum(i) || (i % 1000 == 0 && ar[i] != ft.valueAt(i))) {
+				throw new RuntimeException(step + " mismatch at " + i + ": " + sum + " <> " + ft.sum(i));
+			}
+		}
+	}
+	
+	/**
+	 * Builds the tree from initial values, makes random updates, then closes and reopens it a couple of times, making more updates 
+	 * in between. After each reopen the whole tree has to match the plain array.
+	 */
+	public void testReopen() throws IOException {
+		Path path = Files.createTempFile("fenwick", ".bin");
+		Files.delete(path); // so that the constructor creates it
+		Random r = new Random();
+		long[] ar = new long[n];
+		for (int i = 1; i < n; i++) {
+			ar[i] = r.nextInt(2001) - 1000;
+		}
+		
+		try {
+			try (MappedFenwickTree ft = new MappedFenwickTree(path, n, i -> ar[(int) i])) {
+				checkAll(ft, ar, "build");
+				update(ft, ar, r);
+			}
+			
+			for (int round = 0; round < 2; round++) {
+				try (MappedFenwickTree ft = new MappedFenwickTree(path, 0)) { // n is ignored for an existing file
+					checkAll(ft, ar, "reopen " + round);
+					update(ft, ar, r);
+				}
+			}
+		} finally {
+			Files.delete(path);
+		}
+		
+		System.out.println("testReopen: SUCCESS");
+	}
+	
+	/**
+	 * makes random updates on both the tree and the plain array
+	 */
+	private void update(MappedFenwickTree ft, long[] ar, Random r) {
+		for (int t = 0; t < 10_000; t++) {
+			int i = r.nextInt(n - 1) + 1;
+			long value = r.nextLong() >> 20; // large, but the sums still fit into a long
+			if (r.nextBoolean()) {
+				ft.update(i, value);
+				ar[i] = value;
+			} else {
+				ft.add(i, value);
+				ar[i] += value;
+			}
+		}
+	}
+	
+	/**
+	 * empty, truncated and foreign files should all be rejected
+	 */
+	public void testRejectBadFiles() throws IOException {
+		Path path = Files.createTempFile("fenwick", ".bin");
+		try {
+			expectRejected(path, "empty file");
+			
+			Files.write(path, new byte[1000]);
+			expectRejected(path, "foreign file");
+			
+			Files.delete(path);
+			try (MappedFenwickTree ft = new MappedFenwickTree(path, 1000)) {
+				ft.add(5, 7);
+			}
+			try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+				file.setLength(file.length() - 8);
+			}
+			expectRejected(path, "truncated file");
+		} finally {
+			Files.deleteIfExists(path);
+		}
+		
+		System.out.println("testRejectBadFiles: SUCCESS");
+	}
+	
+	private void expectRejected(Path path, String what) throws IOException {
+		try (MappedFenwickTree ft = new MappedFenwickTree(path, 0)) {
+			throw new RuntimeException(what + " was opened, with length " + ft.length());
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		MappedFenwickTreeTest test = new MappedFenwickTreeTest();
+		test.testReopen();
+		test.testRejectBadFiles();
+	}
+}
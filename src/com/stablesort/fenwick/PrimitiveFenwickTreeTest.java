@@ -0,0 +1,147 @@
+package com.stablesort.fenwick;
+
+import java.util.Random;
+
+import com.stablesort.function.DoubleReversableOperator;
+import com.stablesort.function.IntReversableOperator;
+import com.stablesort.function.LongReversableOperator;
+
+/*
+ * for testing IntFenwickTree, LongFenwickTree and DoubleFenwickTree against a plain array, with random updates
+ */
+public class PrimitiveFenwickTreeTest {
+	
+	int arLen = 100_003; // not a power of 2
+	int numTrials = 100_000;
+	
+	/**
+	 * IntFenwickTree with xor, which is its own reverse
+	 */
+	public void testIntFenwickTree() {
+		Random r = new Random();
+		int[] ar = new int[arLen];
+		for (int i = 1; i < arLen; i++) {
+			ar[i] = r.nextInt();
+		}
+		IntFenwickTree ft = new IntFenwickTree(ar, 0, new IntReversableOperator() {
+			@Override
+			public int apply(int a, int b) {
+				return a ^ b;
+			}
+			@Override
+			public int undo(int c, int b) {
+				return c ^ b;
+			}
+		});
+		
+		for (int t = 0; t < numTrials; t++) {
+			int i = r.nextInt(arLen - 1) + 1;
+			int j = i + r.nextInt(Math.min(1000, arLen - i));
+			
+			int expected = 0;
+			for (int k = i; k <= j; k++) {
+				expected ^= ar[k];
+			}
+			if (expected != ft.query(i, j) || ar[i] != ft.valueAt(i)) {
+				throw new RuntimeException("Mismatch: [" + i + " to " + j + "] --> " + expected + " <> " + ft.query(i, j));
+			}
+			
+			ar[i] = r.nextInt(); // make a random update
+			ft.update(i, ar[i]);
+		}
+		
+		System.out.println("testIntFenwickTree: SUCCESS");
+	}
+	
+	/**
+	 * LongFenwickTree with addition, with values large enough for the sums to go beyond the int range
+	 */
+	public void testLongFenwickTree() {
+		Random r = new Random();
+		long[] ar = new long[arLen];
+		for (int i = 1; i < arLen; i++) {
+			ar[i] = r.nextInt() * 1000L;
+		}
+		LongFenwickTree ft = new LongFenwickTree(ar, 0, new LongReversableOperator() {
+			@Override
+			public long apply(long a, long b) {
+				return a + b;
+			}
+			@Override
+			public long undo(long c, long b) {
+				return c - b;
+			}
+		});
+		
+		for (int t = 0; t < numTrials; t++) {
+			int i = r.nextInt(arLen - 1) + 1;
+			int j = i + r.nextInt(Math.min(1000, arLen - i));
+			
+			long expected = 0;
+			for (int k = i; k <= j; k++) {
+				expected += ar[k];
+			}
+			long prefix = 0;
+			if (t % 1000 == 0) { // the full prefix is long, so only every so often
+				for (int k = 1; k <= j; k++) {
+					prefix += ar[k];
+				}
+			}
+			if (expected != ft.query(i, j) || ar[i] != ft.valueAt(i) || (t % 1000 == 0 && prefix != ft.query(j))) {
+				throw new RuntimeException("Mismatch: [" + i + " to " + j + "] --> " + expected + " <> " + ft.query(i, j));
+			}
+			
+			ar[i] = r.nextInt() * 1000L; // make a random update
+			ft.update(i, ar[i]);
+		}
+		
+		System.out.println("testLongFenwickTree: SUCCESS");
+	}
+	
+	/**
+	 * DoubleFenwickTree with addition. The values are small whole numbers, so that the sums are exact and do not depend on the 
+	 * order of the additions.
+	 */
+	public void testDoubleFenwickTree() {
+		Random r = new Random();
+		double[] ar = new double[arLen];
+		for (int i = 1; i < arLen; i++) {
+			ar[i] = r.nextInt(2001) - 1000;
+		}
+		DoubleFenwickTree ft = new DoubleFenwickTree(ar, 0, new DoubleReversableOperator() {
+			@Override
+			public double apply(double a, double b) {
+				return a + b;
+			}
+			@Override
+			public double undo(double c, double b) {
+				return c - b;
+			}
+		});
+		
+		for (int t = 0; t < numTrials; t++) {
+			int i = r.nextInt(arLen - 1) + 1;
+			int j = i + r.nextInt(Math.min(1000, arLen - i));
+			
+			double expected = 0;
+			for (int k = i; k <= j; k++) {
+				expected += ar[k];
+			}
+			if (expected != ft.query(i, j) || ar[i] != ft.valueAt(i)) {
+				throw new RuntimeException("Mismatch: [" + i + " to " + j + "] --> " + expected + " <> " + ft.query(i, j));
+			}
+			
+			ar[i] = r.nextInt(2001) - 1000; // make a random update
+			ft.update(i, ar[i]);
+		}
+		
+		System.out.println("testDoubleFenwickTree: SUCCESS");
+	}
+	
+	public static void main(String[] args) {
+		PrimitiveFenwickTreeTest test = new PrimitiveFenwickTreeTest();
+		test.testIntFenwickTree();
+		test.testLongFenwickTree();
+		test.testDoubleFenwickTree();
+	}
+}
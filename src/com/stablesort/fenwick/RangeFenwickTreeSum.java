@@ -0,0 +1,123 @@
+package com.stablesort.fenwick;
+
+/**
+ * Fenwick Tree (Binary Index Tree) that supports adding a value to a whole range of elements, as well as range sums, both in O(log n).
+ * 
+ * It keeps two internal trees. The first one, b1, is a regular "range update, point query" tree: adding k to [i, j] is done as
+ * b1.add(i, k) and b1.add(j+1, -k). Then the prefix sum from 1 to x is b1.sum(x) * x minus a correction term, which is kept in the
+ * second tree, b2. The correction is needed because elements before i were not actually changed.
+ * 
+ * Values are stored as long since the correction term is k * i, which overflows int quickly.
+ * 
+ * @author Andre Violentyev
+ */
+public class RangeFenwickTreeSum {
+
+	final private long[] b1;
+	final private long[] b2;
+	
+	/**
+	 * 
+	 * @param ar - data starts at index 1, ar[0] is ignored
+	 */
+	public RangeFenwickTreeSum(int[] ar) {
+		b1 = new long[ar.length];
+		b2 = new long[ar.length];
+		
+		/*
+		 * initial values only need to go into b2. Since b1 is all zeroes, prefix sum is just -b2.sum(x) 
+		 */
+		for (int i = 1; i < b2.length; i++) {
+			b2[i] = -ar[i];
+		}
+		
+		for (int i = 1; i < b2.length; i++) {
+			int p = i + (i & -i); // index to parent range
+			if (p < b2.length) {
+				b2[p] = b2[p] + b2[i];
+			}
+		}
+	}
+	
+	/**
+	 * Returns the sum over the tree from index 1 to i (inclusive)
+	 */
+	private static long sum(long[] tree, int i) {
+		long sum = 0;
+		while (i > 0) {
+			sum += tree[i];
+			i -= i & -i; // zeroes the least significant bit of value 1
+		}
+		return sum;
+	}
+	
+	/**
+	 * Adds k to element at index i of the tree, propagating the change to the right end of the tree
+	 */
+	private static void add(long[] tree, int i, long k) {
+		while (i < tree.length) {
+			tree[i] += k;
+			i += i & -i; // take the least significant set bit and add to i
+		}
+	}
+	
+	/**
+	 * Returns the sum from index 1 to i (inclusive)
+	 * @param i
+	 */
+	public long sum(int i) {
+		return sum(b1, i) * i - sum(b2, i);
+	}
+	
+	/**
+	 * returns the sum from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public long sum(int i, int j) {
+		return sum(j) - sum(i-1);
+	}
+	
+	/**
+	 * just the value from the "original array" at index i
+	 * @param i
+	 * @return
+	 */
+	public long valueAt(int i) {
+		return sum(i, i);
+	}
+	
+	/**
+	 * Adds k to every element from i to j (inclusive)
+	 * @param i
+	 * @param j
+	 * @param k
+	 */
+	public void addRange(int i, int j, long k) {
+		add(b1, i, k);
+		add(b1, j+1, -k);
+		add(b2, i, k * (i-1));
+		add(b2, j+1, -k * j);
+	}
+	
+	/**
+	 * Adds k to element at index i
+	 * @param i
+	 * @param k
+	 */
+	public void add(int i, long k) {
+		addRange(i, i, k);
+	}
+	
+	public static void main(String[] args) {
+		// data starts at index 1. ar[0] is ignored
+		int ar[] = new int[]{0, 5, 2, 9, -3, 5, 20, 10, -7, 2, 3, -4, 0, -2, 15, 5};		
+		RangeFenwickTreeSum ft = new RangeFenwickTreeSum(ar);
+		System.out.println("sum(2, 5) = " + ft.sum(2, 5));
+		
+		ft.addRange(3, 10, 4);
+		System.out.println("value at 3 = " + ft.valueAt(3));
+		System.out.println("sum(2, 5) = " + ft.sum(2, 5));
+	}
+}
@@ -0,0 +1,113 @@
+package com.stablesort.fenwick;
+
+import java.util.Random;
+
+import com.stablesort.util.Rand;
+import com.stablesort.util.StopWatch;
+
+/*
+ * for testing RangeFenwickTreeSum against brute force and against looping point updates on FenwickTreeSum
+ */
+public class RangeFenwickTreeSumTest {
+	
+	/**
+	 * brute force way of adding to a range
+	 * @param ar
+	 * @param i
+	 * @param j
+	 * @param k
+	 */
+	private void testAddRange(long[] ar, int i, int j, int k) {
+		for (; i <= j; i++) {
+			ar[i] += k;
+		}
+	}
+	
+	private long testSum(long[] ar, int i, int j) {
+		long sum = 0;
+		for (; i <= j; i++) {
+			sum += ar[i];
+		}
+		return sum;
+	}
+	
+	/**
+	 * 
+	 * @param len
+	 * @return FALSE if fails
+	 */
+	public boolean test(int len) {
+		int[] ar = Rand.getRandIntAr(len);
+		RangeFenwickTreeSum ft = new RangeFenwickTreeSum(ar);
+		
+		long[] tar = new long[len];
+		for (int i = 1; i < len; i++) {
+			tar[i] = ar[i];
+		}
+		
+		Random r = new Random();
+		
+		for (int t = 0; t < 10000; t++) {
+			int start = r.nextInt(len-1) + 1;
+			int end = start + r.nextInt(len - start);
+			int k = r.nextInt(2001) - 1000;
+			
+			testAddRange(tar, start, end, k);
+			ft.addRange(start, end, k);
+			
+			int i = r.nextInt(len-1) + 1;
+			int j = i + r.nextInt(len - i);
+			
+			if (testSum(tar, i, j) != ft.sum(i, j)) {
+				System.out.println(">>>>>>>>>>>>>>error found: sum(" + i + ", " + j + ") = " + ft.sum(i, j) + " <> " + testSum(tar, i, j));
+				return false;
+			}
+		}
+		
+		System.out.println("test: SUCCESS");
+		return true;
+	}
+	
+	/**
+	 * checks how fast addRange() is compared to looping update() over FenwickTreeSum
+	 * @param len
+	 */
+	public void comparePerf(int len) {
+		int[] ar = Rand.getRandIntAr(len);
+		FenwickTreeSum pointFt = new FenwickTreeSum(ar);
+		RangeFenwickTreeSum rangeFt = new RangeFenwickTreeSum(ar);
+		
+		Random r = new Random();
+		int numTrials = 1000;
+		long tPoint = 0;
+		long tRange = 0;
+		long dummy = 0; // to make sure the compiler does not over-smart us and actually call the function
+		StopWatch sw = new StopWatch();
+		
+		for (int t = 0; t < numTrials; t++) {
+			int start = r.nextInt(len-1) + 1;
+			int end = start + r.nextInt(len - start);
+			
+			sw.poll();
+			for (int i = start; i <= end; i++) {
+				pointFt.update(i, pointFt.valueAt(i) + 1);
+			}
+			dummy += pointFt.sum(start, end);
+			tPoint += sw.poll();
+			
+			rangeFt.addRange(start, end, 1);
+			dummy += rangeFt.sum(start, end);
+			tRange += sw.poll();
+		}
+		
+		System.out.println("FenwickTreeSum update() loop took " + tPoint);
+		System.out.println("RangeFenwickTreeSum addRange() took " + tRange);
+		System.out.println("dummy = " + dummy);
+	}
+	
+	public static void main(String[] args) {
+		RangeFenwickTreeSumTest t = new RangeFenwickTreeSumTest();
+		t.test(1000);
+		t.comparePerf(100_000);
+	}
+}
@@ -0,0 +1,99 @@
+package com.stablesort.fenwick;
+
+import com.stablesort.util.LongLongHashMap;
+
+/**
+ * Fenwick Tree (Binary Index Tree) that uses addition over the whole range of non-negative long keys, such as 64-bit IDs or timestamps.
+ * 
+ * Rather than an array with one slot per key, the nodes are kept in a primitive hash map, and only the nodes that have been touched
+ * by add() ever get stored. Each add() touches at most 63 nodes, so memory is O(k log U) for k distinct keys over a key range of size U,
+ * while sum() and add() stay O(log U).
+ * 
+ * If the keys are all known upfront, CompressedFenwickTreeSum is a lot faster and smaller.
+ * 
+ * @author Andre Violentyev
+ */
+public class SparseFenwickTreeSum {
+
+	final private LongLongHashMap tree;
+	
+	public SparseFenwickTreeSum() {
+		this.tree = new LongLongHashMap();
+	}
+	
+	/**
+	 * @param expectedKeys - roughly how many distinct keys are going to be added, to avoid resizing the hash map
+	 */
+	public SparseFenwickTreeSum(int expectedKeys) {
+		// each key touches a number of nodes, though many are shared. Computed in long so that it does not overflow.
+		this.tree = new LongLongHashMap((int) Math.min(expectedKeys * 16L, Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * Adds k to the value at key, propagating the change to the right end of the tree so that range operations still work
+	 * @param key - from 0 to Long.MAX_VALUE - 1
+	 * @param k
+	 */
+	public void add(long key, long k) {
+		if (key < 0 || key == Long.MAX_VALUE) {
+			throw new IllegalArgumentException("key must be from 0 to " + (Long.MAX_VALUE - 1) + ": " + key);
+		}
+		long i = key + 1; // tree index starts at 1
+		while (i > 0) { // stops once i overflows past Long.MAX_VALUE
+			tree.addTo(i, k);
+			i += i & -i; // take the least significant set bit and add to i
+		}
+	}
+	
+	/**
+	 * Returns the sum of all the values with keys from 0 to key (inclusive)
+	 * @param key - 0 is returned for a negative key
+	 */
+	public long sum(long key) {
+		long sum = 0;
+		long i = Math.min(key, Long.MAX_VALUE - 1) + 1; // Long.MAX_VALUE itself can not be a key, and key + 1 would overflow
+		while (i > 0) {
+			sum += tree.get(i);
+			i -= i & -i; // zeroes the least significant bit of value 1
+		}
+		return sum;
+	}
+	
+	/**
+	 * Returns the sum of all the values with keys from lo to hi (inclusive)
+	 * @param lo
+	 * @param hi
+	 * @return
+	 */
+	public long sum(long lo, long hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		if (lo <= 0) {
+			return sum(hi); // also keeps lo - 1 from overflowing when lo is Long.MIN_VALUE
+		}
+		return sum(hi) - sum(lo - 1);
+	}
+	
+	/**
+	 * just the value at the key
+	 * @param key
+	 * @return
+	 */
+	public long valueAt(long key) {
+		return sum(key, key);
+	}
+	
+	public static void main(String[] args) {
+		SparseFenwickTreeSum ft = new SparseFenwickTreeSum();
+		long now = System.currentTimeMillis() * 1_000_000; // nanosecond timestamps
+		
+		ft.add(now, 5);
+		ft.add(now + 1_000, 7);
+		ft.add(now + 5_000_000_000L, 11);
+		ft.add(3, 1);
+		
+		System.out.println("sum(now, now + 1s) = " + ft.sum(now, now + 1_000_000_000L));
+		System.out.println("total = " + ft.sum(0, Long.MAX_VALUE - 1));
+	}
+}
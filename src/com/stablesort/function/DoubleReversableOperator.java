@@ -0,0 +1,28 @@
+package com.stablesort.function;
+
+/**
+ * Primitive double specialization of ReversableOperator. Avoids boxing, so it is safe to call in hot loops.
+ * For example, addition: apply(a, b) = a + b, undo(c, b) = c - b
+ * 
+ * @see ReversableOperator
+ */
+public interface DoubleReversableOperator {
+	
+	/**
+	 * For example: (a, b) -> a + b
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public double apply(double a, double b);
+	
+	/**
+	 * This should be the reverse of apply() function.
+	 * For example: (c, b) -> c - b;
+	 * 
+	 * @param c
+	 * @param b
+	 * @return
+	 */
+	public double undo(double c, double b);
+}
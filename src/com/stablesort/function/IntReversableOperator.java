@@ -0,0 +1,28 @@
+package com.stablesort.function;
+
+/**
+ * Primitive int specialization of ReversableOperator. Avoids boxing, so it is safe to call in hot loops.
+ * For example, addition: apply(a, b) = a + b, undo(c, b) = c - b
+ * 
+ * @see ReversableOperator
+ */
+public interface IntReversableOperator {
+	
+	/**
+	 * For example: (a, b) -> a + b
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public int apply(int a, int b);
+	
+	/**
+	 * This should be the reverse of apply() function.
+	 * For example: (c, b) -> c - b;
+	 * 
+	 * @param c
+	 * @param b
+	 * @return
+	 */
+	public int undo(int c, int b);
+}
@@ -0,0 +1,48 @@
+package com.stablesort.function;
+
+/**
+ * Describes a lazy propagation segment tree over primitive longs: how node values combine, and how range update tags apply and 
+ * compose. Both values and tags are plain longs, so there is no boxing. For example, "add to a range" with range max:
+ * 
+ * 		identity() = Long.MIN_VALUE,	combine(a, b) = max(a, b)
+ * 		noTag() = 0,					compose(older, newer) = older + newer,		apply(tag, value, len) = value + tag
+ * 
+ * A tag that needs a flag, such as "assign", can reserve one long as the "nothing to do" value, for example Long.MIN_VALUE.
+ * 
+ * @see com.stablesort.segtree.LongLazySegmentTree
+ */
+public interface LongLazyOperator {
+	
+	/**
+	 * @return value of an empty range, i.e. combine(identity(), a) == a
+	 */
+	public long identity();
+	
+	/**
+	 * Combines the values of two neighboring ranges, has to be associative. For example: (a, b) -> Math.max(a, b)
+	 * @param a - value of the left range
+	 * @param b - value of the right range
+	 * @return
+	 */
+	public long combine(long a, long b);
+	
+	/**
+	 * @return the tag that does nothing, i.e. apply(noTag(), value, len) == value
+	 */
+	public long noTag();
+	
+	/**
+	 * @param older - tag that was applied first
+	 * @param newer - tag that was applied after it
+	 * @return single tag with the same effect as applying 'older' and then 'newer'
+	 */
+	public long compose(long older, long newer);
+	
+	/**
+	 * @param tag
+	 * @param value - value of a range before the tag
+	 * @param len - number of elements in the range, for tags like "add" on a sum, where the effect depends on the length
+	 * @return value of the range after the tag
+	 */
+	public long apply(long tag, long value, int len);
+}
@@ -0,0 +1,28 @@
+package com.stablesort.function;
+
+/**
+ * Primitive long specialization of ReversableOperator. Avoids boxing, so it is safe to call in hot loops.
+ * For example, addition: apply(a, b) = a + b, undo(c, b) = c - b
+ * 
+ * @see ReversableOperator
+ */
+public interface LongReversableOperator {
+	
+	/**
+	 * For example: (a, b) -> a + b
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public long apply(long a, long b);
+	
+	/**
+	 * This should be the reverse of apply() function.
+	 * For example: (c, b) -> c - b;
+	 * 
+	 * @param c
+	 * @param b
+	 * @return
+	 */
+	public long undo(long c, long b);
+}
@@ -0,0 +1,61 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Helper for running a large batch of range queries against a segment tree on multiple cores.
+ * 
+ * The queries are split up into chunks, and the chunks run in parallel on the common ForkJoinPool. Queries only read the tree, 
+ * and each one writes its answer into its own slot of the output array, so no locking is needed.
+ * 
+ * Optionally, the queries can be run in the order of their 'from' index rather than in the order they were given. Then consecutive
+ * queries start at nearby leaves and tend to walk through the same nodes, which are then already in the cache.
+ * 
+ * @author Andre Violentyev
+ */
+final class BatchQuery {
+	
+	static final int CHUNK_SIZE = 1 << 12; // number of queries per task
+	
+	private BatchQuery() {
+	}
+	
+	/**
+	 * @param froms - start of each query range
+	 * @param sorted - TRUE to run the queries in the order of their 'from' index
+	 * @param query - k -> out[k] = query(froms[k], tos[k])
+	 */
+	static void run(int[] froms, boolean sorted, IntConsumer query) {
+		int count = froms.length;
+		int[] order = sorted ? sortedOrder(froms) : null;
+		int numChunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			int end = Math.min(count, (c + 1) * CHUNK_SIZE);
+			for (int k = c * CHUNK_SIZE; k < end; k++) {
+				query.accept(order == null ? k : order[k]);
+			}
+		});
+	}
+	
+	/**
+	 * @param froms
+	 * @return query indexes, sorted by their 'from' value
+	 */
+	private static int[] sortedOrder(int[] froms) {
+		// pack 'from' into the high bits and the query index into the low bits, so that a plain sort of longs does the job
+		long[] keys = new long[froms.length];
+		for (int k = 0; k < froms.length; k++) {
+			keys[k] = ((long) froms[k] << 32) | k;
+		}
+		Arrays.parallelSort(keys);
+		
+		int[] order = new int[froms.length];
+		for (int k = 0; k < order.length; k++) {
+			order[k] = (int) keys[k];
+		}
+		return order;
+	}
+}
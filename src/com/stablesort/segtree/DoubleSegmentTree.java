@@ -0,0 +1,107 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Same as the generic SegmentTree, but stores the data in double[] and uses DoubleBinaryOperator, so there is no boxing. Works with any
+ * associative function that has an identity element, i.e. a monoid. For example: 
+ * 
+ * 		min:	new DoubleSegmentTree(ar, Double.POSITIVE_INFINITY, Math::min);
+ * 		max:	new DoubleSegmentTree(ar, Double.NEGATIVE_INFINITY, Math::max);
+ * 		sum:	new DoubleSegmentTree(ar, 0, Double::sum);
+ * 		product:	new DoubleSegmentTree(ar, 1, (a, b) -> a * b);
+ * 
+ * Identity is the value that does not change anything, i.e. f(identity, a) == a. It is what query() returns for an empty range.
+ * 
+ * Implementation inspired by Al.Cash, from: https://codeforces.com/blog/entry/18051
+ * @author Andre Violentyev
+ */
+public class DoubleSegmentTree {
+	private final double[] tree;
+	private final int n; // input array length
+	private final double identity;
+	private final DoubleBinaryOperator f;
+	
+	/**
+	 * @param ar
+	 * @param identity - f(identity, a) == a, for example 0 for addition or Double.NEGATIVE_INFINITY for max
+	 * @param f - any binary associate function, such as min/max/addition/multiplication
+	 */
+	public DoubleSegmentTree(double[] ar, double identity, DoubleBinaryOperator f) {
+		n = ar.length;
+		tree = new double[n * 2];
+		this.identity = identity;
+		this.f = f;
+		
+		// store into the right end of the array
+		System.arraycopy(ar, 0, tree, n, n);
+		
+		for (int i = n - 1; i > 0; i--) {			
+			tree[i] = f.applyAsDouble(tree[2 * i], tree[2 * i + 1]);
+		}
+	}
+	
+	/**
+	 * @param i - index to original array
+	 * @param value - new value to be saved off
+	 */
+	public void update(int i, double value) {
+        i += n;
+        tree[i] = value;
+        double newValue;
+        
+        while (i > 1) {
+            i >>= 1; // shift right is the same as divide by 2
+            newValue = f.applyAsDouble(tree[2 * i], tree[2 * i + 1]);
+            
+            if (tree[i] != newValue) {
+            	tree[i] = newValue;	
+            } else {
+            	return; // since no update to propagate up the tree
+            }
+        }
+    }
+
+	/**
+	 * Same bottom-up walk as SegmentTree.query(). Nodes picked up from the left end and from the right end are kept in
+	 * separate accumulators, so that the order of the elements is preserved even if f is not commutative.
+	 * 
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return identity if the range is empty
+	 */
+    public double query(int from, int to) {
+    	from += n; // go to second half of the array
+        to += n;
+        double left = identity;
+        double right = identity;
+
+        while (from < to) {
+            if ((from & 1) == 1) { // 'from' is odd, so it is the right child of its parent, then interval includes node 'from' but doesn't include its parent
+                left = f.applyAsDouble(left, tree[from]);
+                from++;
+            }
+            if ((to & 1) == 1) { // 'to' is odd, so it's the right child of its parent, then might as well use the parent
+                to--;
+                right = f.applyAsDouble(tree[to], right);
+            }
+            from >>= 1; // shift right is the same as divide by 2 but a little faster
+            to >>= 1;            
+        }
+        
+        return f.applyAsDouble(left, right);
+    }
+    
+	public static void main(String[] args) {
+		double[] ar = new double[]{6.1, 10.5, 5.2, 2.0, 7.1, 1.3, 0.3, 9.2};
+		DoubleSegmentTree max = new DoubleSegmentTree(ar, Double.NEGATIVE_INFINITY, Math::max);
+		DoubleSegmentTree sum = new DoubleSegmentTree(ar, 0, Double::sum);
+		System.out.println("max=" + max.query(2,  8));
+		System.out.println("sum=" + sum.query(0,  4));
+		
+		max.update(2, 20.0);
+		System.out.println("max=" + max.query(0,  8));
+		System.out.println(Arrays.toString(max.tree));
+	}
+}
@@ -0,0 +1,313 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree over a huge, sparse range of long keys, such as timestamps spread over 2^40, with range sum and range max queries.
+ * 
+ * Rather than allocating the whole tree upfront, a node only gets created when a key under it is set, so memory is O(k log U) for k keys
+ * over a key range of size U. Both set() and the queries walk a single root-to-leaf path, so they are O(log U).
+ * 
+ * Nodes are not objects. They live in a pool of parallel arrays (left child, right child, sum, max, count) and a node is just its index 
+ * into those arrays. Node 0 stands for an empty subtree: its sum is 0, max is Long.MIN_VALUE and count is 0, so the code never has to 
+ * check for missing children.
+ * 
+ * Once a subtree has no keys left in it, its nodes go onto a free list and get reused by later inserts. compact() goes further and copies 
+ * the live nodes into a right-sized pool, in depth first order, which also puts parents next to their children.
+ * 
+ * @author Andre Violentyev
+ */
+public class DynamicSegmentTree {
+	private final long universe; // keys are from 0 to universe - 1
+	
+	// node pool
+	private int[] left;
+	private int[] right;
+	private long[] sum;
+	private long[] max;
+	private int[] count; // number of keys under the node
+	private int nodeCount; // next never used node index
+	private int freeHead = 0; // head of the list of freed nodes, linked through left[]
+	private int freeCount = 0;
+	
+	private int root = 0;
+	
+	/**
+	 * @param universe - keys are from 0 to universe - 1, for example 1L << 40
+	 */
+	public DynamicSegmentTree(long universe) {
+		this.universe = universe;
+		allocate(64);
+	}
+	
+	/**
+	 * sets up an empty pool
+	 */
+	private void allocate(int capacity) {
+		left = new int[capacity];
+		right = new int[capacity];
+		sum = new long[capacity];
+		max = new long[capacity];
+		count = new int[capacity];
+		max[0] = Long.MIN_VALUE; // node 0 is the empty subtree
+		nodeCount = 1;
+		freeHead = 0;
+		freeCount = 0;
+	}
+	
+	private int newNode() {
+		int node;
+		if (freeHead != 0) {
+			node = freeHead;
+			freeHead = left[node];
+			freeCount--;
+		} else {
+			if (nodeCount == left.length) {
+				int capacity = left.length * 2;
+				left = Arrays.copyOf(left, capacity);
+				right = Arrays.copyOf(right, capacity);
+				sum = Arrays.copyOf(sum, capacity);
+				max = Arrays.copyOf(max, capacity);
+				count = Arrays.copyOf(count, capacity);
+			}
+			node = nodeCount++;
+		}
+		left[node] = 0;
+		right[node] = 0;
+		return node;
+	}
+	
+	private void free(int node) {
+		left[node] = freeHead;
+		freeHead = node;
+		freeCount++;
+	}
+	
+	/**
+	 * @return number of keys in the tree
+	 */
+	public int size() {
+		return count[root];
+	}
+	
+	/**
+	 * @return number of nodes in use, not counting the ones on the free list
+	 */
+	public int nodeCount() {
+		return nodeCount - 1 - freeCount;
+	}
+	
+	/**
+	 * @return number of nodes handed out from the pool so far, including the ones on the free list. Only goes down on compact()
+	 */
+	public int poolSize() {
+		return nodeCount - 1;
+	}
+	
+	/**
+	 * @return number of node slots allocated in the pool, including node 0 and the slots not handed out yet
+	 */
+	public int capacity() {
+		return left.length;
+	}
+	
+	/**
+	 * Sets the value for the key, adding the key if it is not there yet
+	 * @param key - from 0 to universe - 1
+	 * @param value
+	 */
+	public void set(long key, long value) {
+		checkKey(key);
+		root = set(root, 0, universe, key, value, false);
+	}
+	
+	/**
+	 * Removes the key, freeing up any nodes that no longer have keys under them
+	 * @param key
+	 */
+	public void remove(long key) {
+		checkKey(key);
+		root = set(root, 0, universe, key, 0, true);
+	}
+	
+	/**
+	 * Adds delta to the value for the key, adding the key with value delta if it is not there yet
+	 * @param key
+	 * @param delta
+	 */
+	public void add(long key, long delta) {
+		checkKey(key);
+		int node = find(key);
+		set(key, node == 0 ? delta : sum[node] + delta);
+	}
+	
+	/**
+	 * @param key
+	 * @return TRUE if the key has been set and not removed since
+	 */
+	public boolean contains(long key) {
+		checkKey(key);
+		return find(key) != 0;
+	}
+	
+	/**
+	 * without this, the descent would silently put a key that is out of range onto the nearest boundary leaf
+	 */
+	private void checkKey(long key) {
+		if (key < 0 || key >= universe) {
+			throw new IllegalArgumentException("key must be from 0 to " + (universe - 1) + ": " + key);
+		}
+	}
+	
+	/**
+	 * @param key
+	 * @return leaf node for the key, 0 if it is not there
+	 */
+	private int find(long key) {
+		int node = root;
+		long lo = 0;
+		long hi = universe;
+		while (node != 0 && hi - lo > 1) {
+			long mid = (lo + hi) >>> 1;
+			if (key < mid) {
+				node = left[node];
+				hi = mid;
+			} else {
+				node = right[node];
+				lo = mid;
+			}
+		}
+		return node;
+	}
+	
+	/**
+	 * @return the node, 0 if its subtree ended up empty
+	 */
+	private int set(int node, long lo, long hi, long key, long value, boolean remove) {
+		if (node == 0) {
+			if (remove) {
+				return 0; // nothing to remove
+			}
+			node = newNode();
+		}
+		
+		if (hi - lo == 1) {
+			if (remove) {
+				free(node);
+				return 0;
+			}
+			sum[node] = value;
+			max[node] = value;
+			count[node] = 1;
+			return node;
+		}
+		
+		/*
+		 * the child has to be kept in a local before storing it, since the recursive call may grow the pool, 
+		 * and left[node] = set(...) would write into the old array
+		 */
+		long mid = (lo + hi) >>> 1;
+		if (key < mid) {
+			int child = set(left[node], lo, mid, key, value, remove);
+			left[node] = child;
+		} else {
+			int child = set(right[node], mid, hi, key, value, remove);
+			right[node] = child;
+		}
+		
+		int l = left[node];
+		int r = right[node];
+		count[node] = count[l] + count[r];
+		if (count[node] == 0) {
+			free(node);
+			return 0;
+		}
+		sum[node] = sum[l] + sum[r];
+		max[node] = Math.max(max[l], max[r]);
+		return node;
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return sum of the values for all of the keys in the range
+	 */
+	public long sum(long from, long to) {
+		return sum(root, 0, universe, from, to);
+	}
+	
+	private long sum(int node, long lo, long hi, long from, long to) {
+		if (node == 0 || to <= lo || hi <= from) {
+			return 0;
+		}
+		if (from <= lo && hi <= to) {
+			return sum[node];
+		}
+		long mid = (lo + hi) >>> 1;
+		return sum(left[node], lo, mid, from, to) + sum(right[node], mid, hi, from, to);
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return max of the values for all of the keys in the range, Long.MIN_VALUE if there are none
+	 */
+	public long max(long from, long to) {
+		return max(root, 0, universe, from, to);
+	}
+	
+	private long max(int node, long lo, long hi, long from, long to) {
+		if (node == 0 || to <= lo || hi <= from) {
+			return Long.MIN_VALUE;
+		}
+		if (from <= lo && hi <= to) {
+			return max[node];
+		}
+		long mid = (lo + hi) >>> 1;
+		return Math.max(max(left[node], lo, mid, from, to), max(right[node], mid, hi, from, to));
+	}
+	
+	/**
+	 * Copies the live nodes into a new pool that is just big enough for them, dropping the free list. O(number of live nodes)
+	 */
+	public void compact() {
+		int[] oldLeft = left;
+		int[] oldRight = right;
+		long[] oldSum = sum;
+		long[] oldMax = max;
+		int[] oldCount = count;
+		
+		allocate(Math.max(64, nodeCount() + 1)); // + 1 for node 0
+		root = copy(root, oldLeft, oldRight, oldSum, oldMax, oldCount);
+	}
+	
+	private int copy(int node, int[] oldLeft, int[] oldRight, long[] oldSum, long[] oldMax, int[] oldCount) {
+		if (node == 0) {
+			return 0;
+		}
+		int copy = newNode();
+		sum[copy] = oldSum[node];
+		max[copy] = oldMax[node];
+		count[copy] = oldCount[node];
+		int l = copy(oldLeft[node], oldLeft, oldRight, oldSum, oldMax, oldCount);
+		int r = copy(oldRight[node], oldLeft, oldRight, oldSum, oldMax, oldCount);
+		left[copy] = l;
+		right[copy] = r;
+		return copy;
+	}
+	
+	public static void main(String[] args) {
+		DynamicSegmentTree tree = new DynamicSegmentTree(1L << 40);
+		long t = 1_000_000_000_000L;
+		
+		tree.set(t, 5);
+		tree.set(t + 10, 7);
+		tree.add(t + 10, 3);
+		tree.set(t + 1_000_000, 2);
+		System.out.println("sum=" + tree.sum(t, t + 100) + ", max=" + tree.max(0, 1L << 40) + ", nodes=" + tree.nodeCount());
+		
+		tree.remove(t + 1_000_000);
+		tree.compact();
+		System.out.println("sum=" + tree.sum(0, 1L << 40) + ", size=" + tree.size() + ", nodes=" + tree.nodeCount());
+	}
+}
@@ -0,0 +1,121 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Same as the generic SegmentTree, but stores the data in int[] and uses IntBinaryOperator, so there is no boxing. Works with any
+ * associative function that has an identity element, i.e. a monoid. For example: 
+ * 
+ * 		min:	new IntSegmentTree(ar, Integer.MAX_VALUE, Math::min);
+ * 		max:	new IntSegmentTree(ar, Integer.MIN_VALUE, Math::max);
+ * 		sum:	new IntSegmentTree(ar, 0, Integer::sum);
+ * 		and:	new IntSegmentTree(ar, -1, (a, b) -> a & b);
+ * 		or:		new IntSegmentTree(ar, 0, (a, b) -> a | b);
+ * 		gcd:	new IntSegmentTree(ar, 0, IntSegmentTree::gcd);
+ * 
+ * Identity is the value that does not change anything, i.e. f(identity, a) == a. It is what query() returns for an empty range.
+ * 
+ * Implementation inspired by Al.Cash, from: https://codeforces.com/blog/entry/18051
+ * @author Andre Violentyev
+ */
+public class IntSegmentTree {
+	private final int[] tree;
+	private final int n; // input array length
+	private final int identity;
+	private final IntBinaryOperator f;
+	
+	/**
+	 * @param ar
+	 * @param identity - f(identity, a) == a, for example 0 for addition or Integer.MIN_VALUE for max
+	 * @param f - any binary associate function, such as min/max/addition/gcd/and/or
+	 */
+	public IntSegmentTree(int[] ar, int identity, IntBinaryOperator f) {
+		n = ar.length;
+		tree = new int[n * 2];
+		this.identity = identity;
+		this.f = f;
+		
+		// store into the right end of the array
+		System.arraycopy(ar, 0, tree, n, n);
+		
+		for (int i = n - 1; i > 0; i--) {			
+			tree[i] = f.applyAsInt(tree[2 * i], tree[2 * i + 1]);
+		}
+	}
+	
+	/**
+	 * @param i - index to original array
+	 * @param value - new value to be saved off
+	 */
+	public void update(int i, int value) {
+        i += n;
+        tree[i] = value;
+        int newValue;
+        
+        while (i > 1) {
+            i >>= 1; // shift right is the same as divide by 2
+            newValue = f.applyAsInt(tree[2 * i], tree[2 * i + 1]);
+            
+            if (tree[i] != newValue) {
+            	tree[i] = newValue;	
+            } else {
+            	return; // since no update to propagate up the tree
+            }
+        }
+    }
+
+	/**
+	 * Same bottom-up walk as SegmentTree.query(). Nodes picked up from the left end and from the right end are kept in
+	 * separate accumulators, so that the order of the elements is preserved even if f is not commutative.
+	 * 
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return identity if the range is empty
+	 */
+    public int query(int from, int to) {
+    	from += n; // go to second half of the array
+        to += n;
+        int left = identity;
+        int right = identity;
+
+        while (from < to) {
+            if ((from & 1) == 1) { // 'from' is odd, so it is the right child of its parent, then interval includes node 'from' but doesn't include its parent
+                left = f.applyAsInt(left, tree[from]);
+                from++;
+            }
+            if ((to & 1) == 1) { // 'to' is odd, so it's the right child of its parent, then might as well use the parent
+                to--;
+                right = f.applyAsInt(tree[to], right);
+            }
+            from >>= 1; // shift right is the same as divide by 2 but a little faster
+            to >>= 1;            
+        }
+        
+        return f.applyAsInt(left, right);
+    }
+    
+    /**
+     * greatest common divisor, for use as the tree function
+     */
+    public static int gcd(int a, int b) {
+    	while (b != 0) {
+    		int t = a % b;
+    		a = b;
+    		b = t;
+    	}
+    	return Math.abs(a);
+    }
+    
+	public static void main(String[] args) {
+		int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9};
+		IntSegmentTree max = new IntSegmentTree(ar, Integer.MIN_VALUE, Math::max);
+		IntSegmentTree gcd = new IntSegmentTree(new int[]{12, 18, 24, 36, 7}, 0, IntSegmentTree::gcd);
+		System.out.println("max=" + max.query(2,  8));
+		System.out.println("gcd=" + gcd.query(0,  4));
+		
+		max.update(2, 20);
+		System.out.println("max=" + max.query(0,  8));
+		System.out.println(Arrays.toString(max.tree));
+	}
+}
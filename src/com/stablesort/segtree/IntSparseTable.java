@@ -0,0 +1,79 @@
+package com.stablesort.segtree;
+
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Sparse table for static (read-only) range queries in O(1), for any idempotent function, i.e. f(a, a) == a. 
+ * For example min, max, gcd, bitwise and/or. Sum does NOT work, use a segment tree or a Fenwick tree for that.
+ * 
+ * Level k holds f() over every range of length 2^k: table[k][i] = f(ar[i], ..., ar[i + 2^k - 1]). Any range [from, to) can then be
+ * covered by two such ranges of the same length, one starting at 'from' and the other ending at 'to'. They overlap, but since f is 
+ * idempotent, counting some of the elements twice does not matter.
+ * 
+ * Takes O(n log n) memory, for example about 27 ints per element for 100M elements. For a compact version, see IntBlockSparseTable.
+ * 
+ * Each level only depends on the one below it, so the levels are built one after another, but each one is filled in parallel.
+ * 
+ * @author Andre Violentyev
+ */
+public class IntSparseTable {
+	
+	static final int PARALLEL_THRESHOLD = 1 << 16; // levels shorter than this are not worth splitting up across threads
+	
+	private final int[][] table;
+	private final IntBinaryOperator f;
+	
+	/**
+	 * @param ar - not copied, used as the first level of the table
+	 * @param f - idempotent function, such as Math::max
+	 */
+	public IntSparseTable(int[] ar, IntBinaryOperator f) {
+		this.f = f;
+		int levels = ar.length > 0 ? 32 - Integer.numberOfLeadingZeros(ar.length) : 1;
+		table = new int[levels][];
+		table[0] = ar;
+		
+		for (int k = 1; k < levels; k++) {
+			table[k] = buildLevel(table[k - 1], 1 << (k - 1), f);
+		}
+	}
+	
+	/**
+	 * @param prev - level below
+	 * @param half - length of the ranges in the level below
+	 * @param f
+	 * @return next level, where each range is made up of two ranges from the level below
+	 */
+	static int[] buildLevel(int[] prev, int half, IntBinaryOperator f) {
+		int[] cur = new int[prev.length - half];
+		
+		if (cur.length < PARALLEL_THRESHOLD) {
+			for (int i = 0; i < cur.length; i++) {
+				cur[i] = f.applyAsInt(prev[i], prev[i + half]);
+			}
+		} else {
+			IntStream.range(0, cur.length).parallel().forEach(i -> cur[i] = f.applyAsInt(prev[i], prev[i + half]));
+		}
+		
+		return cur;
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive, has to be greater than 'from'
+	 * @return
+	 */
+	public int query(int from, int to) {
+		int k = 31 - Integer.numberOfLeadingZeros(to - from); // largest k where 2^k fits into the range
+		int[] level = table[k];
+		return f.applyAsInt(level[from], level[to - (1 << k)]);
+	}
+	
+	public static void main(String[] args) {
+		int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9};
+		IntSparseTable max = new IntSparseTable(ar, Math::max);
+		IntSparseTable min = new IntSparseTable(ar, Math::min);
+		System.out.println("max=" + max.query(2, 8) + ", min=" + min.query(0, 5));
+	}
+}
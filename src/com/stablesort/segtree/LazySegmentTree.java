@@ -0,0 +1,210 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree with lazy propagation, that supports both "add delta to every element in [from, to)" and "assign value to every element
+ * in [from, to)", along with range max and range sum queries. All of them are O(log n).
+ * 
+ * A range update does not go all the way down to the leaves. Instead, it stops at the O(log n) nodes that fully cover the range, updates
+ * their max and sum, and leaves a "tag" on them, saying what still has to be done to their children. The tag gets pushed one level
+ * down only when some later operation needs to go below that node.
+ * 
+ * Tags have to compose, so that a node could hold the combined effect of several updates. Here a tag is one of two things: 
+ * "add d" or "assign v". Add followed by add is add of the total. Anything followed by assign is just the assign. And assign v followed 
+ * by add d is assign (v + d). So a single pair of (assigned?, value) per node is always enough.
+ * 
+ * Unlike SegmentTreeMax, this is a recursive top-down implementation, since range updates need to go through the tags on the way down.
+ * Data is kept in primitive arrays, one per field, rather than in node objects.
+ * 
+ * The tags here are hard coded for speed. For other kinds of updates and queries, LongLazySegmentTree takes the tag composition 
+ * as a LongLazyOperator.
+ * 
+ * @author Andre Violentyev
+ */
+public class LazySegmentTree {
+	private final int n; // input array length
+	private final long[] max;
+	private final long[] sum;
+	private final long[] tag; // pending add, or the pending assigned value if isAssign[node] is TRUE
+	private final boolean[] isAssign;
+	
+	public LazySegmentTree(int[] ar) {
+		n = ar.length;
+		int size = 4 * Math.max(1, n);
+		max = new long[size];
+		sum = new long[size];
+		tag = new long[size];
+		isAssign = new boolean[size];
+		
+		if (n > 0) {
+			build(ar, 1, 0, n);
+		}
+	}
+	
+	private void build(int[] ar, int node, int lo, int hi) {
+		if (hi - lo == 1) {
+			max[node] = ar[lo];
+			sum[node] = ar[lo];
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		build(ar, 2 * node, lo, mid);
+		build(ar, 2 * node + 1, mid, hi);
+		pull(node);
+	}
+	
+	/**
+	 * recalculates node from its two children
+	 */
+	private void pull(int node) {
+		max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+		sum[node] = sum[2 * node] + sum[2 * node + 1];
+	}
+	
+	/**
+	 * Assigns value to every element under the node, which covers len elements. Replaces any pending tag.
+	 */
+	private void assignNode(int node, int len, long value) {
+		max[node] = value;
+		sum[node] = value * len;
+		tag[node] = value;
+		isAssign[node] = true;
+	}
+	
+	/**
+	 * Adds delta to every element under the node, which covers len elements. Composes with the pending tag.
+	 */
+	private void addNode(int node, int len, long delta) {
+		max[node] += delta;
+		sum[node] += delta * len;
+		tag[node] += delta; // works for both kinds of tags: add d1 then d2 is add (d1 + d2), assign v then add d is assign (v + d)
+	}
+	
+	/**
+	 * passes the pending tag down to the two children
+	 */
+	private void push(int node, int lo, int mid, int hi) {
+		if (isAssign[node]) {
+			assignNode(2 * node, mid - lo, tag[node]);
+			assignNode(2 * node + 1, hi - mid, tag[node]);
+			isAssign[node] = false;
+		} else if (tag[node] != 0) {
+			addNode(2 * node, mid - lo, tag[node]);
+			addNode(2 * node + 1, hi - mid, tag[node]);
+		}
+		tag[node] = 0;
+	}
+	
+	/**
+	 * @param assign - TRUE to assign value, FALSE to add it
+	 */
+	private void update(int node, int lo, int hi, int from, int to, boolean assign, long value) {
+		if (to <= lo || hi <= from) {
+			return; // no overlap
+		}
+		if (from <= lo && hi <= to) { // node is fully covered, so leave a tag on it and stop
+			if (assign) {
+				assignNode(node, hi - lo, value);
+			} else {
+				addNode(node, hi - lo, value);
+			}
+			return;
+		}
+		
+		int mid = (lo + hi) >>> 1;
+		push(node, lo, mid, hi);
+		update(2 * node, lo, mid, from, to, assign, value);
+		update(2 * node + 1, mid, hi, from, to, assign, value);
+		pull(node);
+	}
+	
+	private long max(int node, int lo, int hi, int from, int to) {
+		if (to <= lo || hi <= from) {
+			return Long.MIN_VALUE;
+		}
+		if (from <= lo && hi <= to) {
+			return max[node];
+		}
+		int mid = (lo + hi) >>> 1;
+		push(node, lo, mid, hi);
+		return Math.max(max(2 * node, lo, mid, from, to), max(2 * node + 1, mid, hi, from, to));
+	}
+	
+	private long sum(int node, int lo, int hi, int from, int to) {
+		if (to <= lo || hi <= from) {
+			return 0;
+		}
+		if (from <= lo && hi <= to) {
+			return sum[node];
+		}
+		int mid = (lo + hi) >>> 1;
+		push(node, lo, mid, hi);
+		return sum(2 * node, lo, mid, from, to) + sum(2 * node + 1, mid, hi, from, to);
+	}
+	
+	/**
+	 * adds delta to every element from 'from' to 'to'
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param delta
+	 */
+	public void add(int from, int to, long delta) {
+		if (from < to) {
+			update(1, 0, n, from, to, false, delta);
+		}
+	}
+	
+	/**
+	 * sets every element from 'from' to 'to' to value
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param value
+	 */
+	public void assign(int from, int to, long value) {
+		if (from < to) {
+			update(1, 0, n, from, to, true, value);
+		}
+	}
+	
+	/**
+	 * @param i - index to original array
+	 * @param value - new value to be saved off
+	 */
+	public void update(int i, long value) {
+		assign(i, i + 1, value);
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return Long.MIN_VALUE if the range is empty
+	 */
+	public long max(int from, int to) {
+		return from < to ? max(1, 0, n, from, to) : Long.MIN_VALUE;
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return
+	 */
+	public long sum(int from, int to) {
+		return from < to ? sum(1, 0, n, from, to) : 0;
+	}
+	
+	public static void main(String[] args) {
+		int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9};
+		LazySegmentTree tree = new LazySegmentTree(ar);
+		
+		tree.add(2, 6, 10);
+		System.out.println("max=" + tree.max(0, 8) + ", sum=" + tree.sum(0, 8));
+		
+		tree.assign(1, 4, 3);
+		long[] values = new long[ar.length];
+		for (int i = 0; i < ar.length; i++) {
+			values[i] = tree.sum(i, i + 1);
+		}
+		System.out.println(Arrays.toString(values));
+	}
+}
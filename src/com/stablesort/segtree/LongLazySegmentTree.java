@@ -0,0 +1,142 @@
+package com.stablesort.segtree;
+
+import com.stablesort.function.LongLazyOperator;
+
+/**
+ * Lazy propagation segment tree where both the kind of query and the kind of range update are pluggable, see LongLazyOperator. 
+ * For example range add with range max, range add with range sum, or range assign with range min. All operations are O(log n).
+ * 
+ * It works the same way as LazySegmentTree: a range update stops at the O(log n) nodes that fully cover the range and leaves a tag
+ * on them, which gets pushed down one level only when a later operation has to go below that node. Two tags on the same node are
+ * merged into one with LongLazyOperator.compose(), so each node only ever holds a single long tag.
+ * 
+ * Values and tags are kept in two long[] arrays, so there is no boxing. LazySegmentTree is the hand specialized version for 
+ * add and assign together with both max and sum.
+ * 
+ * @author Andre Violentyev
+ */
+public class LongLazySegmentTree {
+	private final int n; // input array length
+	private final long[] value;
+	private final long[] tag; // pending tag for the children of the node
+	private final LongLazyOperator op;
+	
+	public LongLazySegmentTree(long[] ar, LongLazyOperator op) {
+		this.n = ar.length;
+		this.op = op;
+		int size = 4 * Math.max(1, n);
+		value = new long[size];
+		tag = new long[size];
+		
+		if (n > 0) {
+			build(ar, 1, 0, n);
+		}
+	}
+	
+	private void build(long[] ar, int node, int lo, int hi) {
+		tag[node] = op.noTag();
+		if (hi - lo == 1) {
+			value[node] = ar[lo];
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		build(ar, 2 * node, lo, mid);
+		build(ar, 2 * node + 1, mid, hi);
+		value[node] = op.combine(value[2 * node], value[2 * node + 1]);
+	}
+	
+	/**
+	 * applies t to every element under the node, which covers len elements, and composes it with the pending tag
+	 */
+	private void applyNode(int node, int len, long t) {
+		value[node] = op.apply(t, value[node], len);
+		tag[node] = op.compose(tag[node], t);
+	}
+	
+	/**
+	 * passes the pending tag down to the two children
+	 */
+	private void push(int node, int lo, int mid, int hi) {
+		long t = tag[node];
+		if (t != op.noTag()) {
+			applyNode(2 * node, mid - lo, t);
+			applyNode(2 * node + 1, hi - mid, t);
+			tag[node] = op.noTag();
+		}
+	}
+	
+	private void apply(int node, int lo, int hi, int from, int to, long t) {
+		if (to <= lo || hi <= from) {
+			return; // no overlap
+		}
+		if (from <= lo && hi <= to) { // node is fully covered, so leave a tag on it and stop
+			applyNode(node, hi - lo, t);
+			return;
+		}
+		
+		int mid = (lo + hi) >>> 1;
+		push(node, lo, mid, hi);
+		apply(2 * node, lo, mid, from, to, t);
+		apply(2 * node + 1, mid, hi, from, to, t);
+		value[node] = op.combine(value[2 * node], value[2 * node + 1]);
+	}
+	
+	private long query(int node, int lo, int hi, int from, int to) {
+		if (to <= lo || hi <= from) {
+			return op.identity();
+		}
+		if (from <= lo && hi <= to) {
+			return value[node];
+		}
+		int mid = (lo + hi) >>> 1;
+		push(node, lo, mid, hi);
+		return op.combine(query(2 * node, lo, mid, from, to), query(2 * node + 1, mid, hi, from, to));
+	}
+	
+	/**
+	 * applies the tag to every element from 'from' to 'to'
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param t - for example the delta, for a range add
+	 */
+	public void apply(int from, int to, long t) {
+		if (from < to) {
+			apply(1, 0, n, from, to, t);
+		}
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return LongLazyOperator.identity() if the range is empty
+	 */
+	public long query(int from, int to) {
+		return from < to ? query(1, 0, n, from, to) : op.identity();
+	}
+	
+	public static void main(String[] args) {
+		long[] ar = new long[]{6, 10, 5, 2, 7, 1, 0, 9};
+		
+		// range add, range sum
+		LongLazySegmentTree sums = new LongLazySegmentTree(ar, new LongLazyOperator() {
+			public long identity() { return 0; }
+			public long combine(long a, long b) { return a + b; }
+			public long noTag() { return 0; }
+			public long compose(long older, long newer) { return older + newer; }
+			public long apply(long tag, long value, int len) { return value + tag * len; }
+		});
+		sums.apply(2, 6, 10);
+		System.out.println("sum=" + sums.query(0, 8));
+		
+		// range assign, range min. Long.MIN_VALUE is reserved to mean "no assign pending"
+		LongLazySegmentTree mins = new LongLazySegmentTree(ar, new LongLazyOperator() {
+			public long identity() { return Long.MAX_VALUE; }
+			public long combine(long a, long b) { return Math.min(a, b); }
+			public long noTag() { return Long.MIN_VALUE; }
+			public long compose(long older, long newer) { return newer == Long.MIN_VALUE ? older : newer; }
+			public long apply(long tag, long value, int len) { return tag == Long.MIN_VALUE ? value : tag; }
+		});
+		mins.apply(4, 8, 3);
+		System.out.println("min(2, 8)=" + mins.query(2, 8) + ", min(4, 8)=" + mins.query(4, 8));
+	}
+}
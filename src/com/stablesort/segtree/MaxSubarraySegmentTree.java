@@ -0,0 +1,260 @@
+package com.stablesort.segtree;
+
+/**
+ * Finds the maximum sum contiguous subarray within any range [from, to), with point updates. Both in O(log n).
+ * 
+ * Each node keeps 4 numbers for its part of the array: the sum, the best prefix sum, the best suffix sum, and the best subarray sum.
+ * That is enough to merge two neighboring nodes (Kadane's algorithm, one node at a time instead of one element at a time):
+ * 
+ * 		sum    = left.sum + right.sum
+ * 		prefix = max(left.prefix, left.sum + right.prefix)
+ * 		suffix = max(right.suffix, right.sum + left.suffix)
+ * 		best   = max(left.best, right.best, left.suffix + right.prefix)
+ * 
+ * The generic SegmentTree could do this with a 4-tuple object per node, but then every merge allocates. Here the 4 numbers are stored 
+ * in 4 parallel long[] arrays, so there is no boxing at all.
+ * 
+ * Subarrays are never empty, so for a range of only negative numbers the answer is its largest element.
+ * 
+ * To get the boundaries of the best subarray, the query remembers which of its O(log n) nodes the best subarray starts and ends in, 
+ * and then walks down from those nodes to the leaves, picking the child that produced the stored value. 
+ * 
+ * Implementation inspired by Al.Cash, from: https://codeforces.com/blog/entry/18051
+ * @author Andre Violentyev
+ */
+public class MaxSubarraySegmentTree {
+	private final int n; // input array length
+	private final long[] sum;
+	private final long[] prefix; // best non-empty prefix sum
+	private final long[] suffix; // best non-empty suffix sum
+	private final long[] best; // best non-empty subarray sum
+	
+	/**
+	 * the answer to maxSubarray(), i.e. ar[from] + ... + ar[to - 1] == sum
+	 */
+	public static class Subarray {
+		public final int from; // inclusive
+		public final int to; // exclusive
+		public final long sum;
+		
+		Subarray(int from, int to, long sum) {
+			this.from = from;
+			this.to = to;
+			this.sum = sum;
+		}
+		
+		@Override
+		public String toString() {
+			return "[" + from + ", " + to + ") = " + sum;
+		}
+	}
+	
+	public MaxSubarraySegmentTree(long[] ar) {
+		n = ar.length;
+		sum = new long[n * 2];
+		prefix = new long[n * 2];
+		suffix = new long[n * 2];
+		best = new long[n * 2];
+		
+		// store into the right end of the arrays
+		for (int i = 0; i < n; i++) {
+			setLeaf(i + n, ar[i]);
+		}
+		
+		for (int i = n - 1; i > 0; i--) {
+			merge(i);
+		}
+	}
+	
+	public MaxSubarraySegmentTree(int[] ar) {
+		this(toLong(ar));
+	}
+	
+	private static long[] toLong(int[] ar) {
+		long[] res = new long[ar.length];
+		for (int i = 0; i < ar.length; i++) {
+			res[i] = ar[i];
+		}
+		return res;
+	}
+	
+	private void setLeaf(int i, long value) {
+		sum[i] = value;
+		prefix[i] = value;
+		suffix[i] = value;
+		best[i] = value;
+	}
+	
+	/**
+	 * recomputes node i from its two children
+	 */
+	private void merge(int i) {
+		int a = 2 * i;
+		int b = 2 * i + 1;
+		sum[i] = sum[a] + sum[b];
+		prefix[i] = Math.max(prefix[a], sum[a] + prefix[b]);
+		suffix[i] = Math.max(suffix[b], sum[b] + suffix[a]);
+		best[i] = Math.max(Math.max(best[a], best[b]), suffix[a] + prefix[b]);
+	}
+	
+	/**
+	 * @param i - index to original array
+	 * @param value - new value to be saved off
+	 */
+	public void update(int i, long value) {
+		i += n;
+		setLeaf(i, value);
+		
+		while (i > 1) {
+			i >>= 1; // shift right is the same as divide by 2
+			merge(i);
+		}
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive, has to be greater than 'from'
+	 * @return sum of the maximum sum subarray within the range
+	 */
+	public long maxSum(int from, int to) {
+		return walk(from, to, null);
+	}
+	
+	/**
+	 * Same as maxSum(), but also finds where the subarray is. If there are several with the same sum, returns any one of them.
+	 * 
+	 * @param from - inclusive
+	 * @param to - exclusive, has to be greater than 'from'
+	 * @return the maximum sum subarray within the range
+	 */
+	public Subarray maxSubarray(int from, int to) {
+		int[] ends = new int[2];
+		long res = walk(from, to, ends);
+		
+		if (ends[0] == ends[1]) {
+			return bestWithin(ends[0]);
+		}
+		return new Subarray(suffixStart(ends[0]), prefixEnd(ends[1]), res);
+	}
+	
+	/**
+	 * Same bottom-up walk as IntSegmentTree.query(), collecting the nodes that exactly cover [from, to) in left to right order. 
+	 * The nodes picked up from the right end come in the reverse order, so they are filled in from the back and moved over at the end.
+	 * Then runs Kadane's algorithm over those nodes.
+	 * 
+	 * All of the state is local, so queries can run concurrently. The small nodes[] array does not escape, so the JIT can 
+	 * keep it off the heap.
+	 * 
+	 * @param ends - if not null, gets the node the best subarray starts in and the node it ends in. If they are the same, 
+	 * 		then it is entirely within the node
+	 * @return sum of the maximum sum subarray within the range
+	 */
+	private long walk(int from, int to, int[] ends) {
+		if (from < 0 || to > n || from >= to) {
+			throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+		}
+		
+		int[] nodes = new int[64]; // at most 2 per level of the tree
+		from += n; // go to second half of the arrays
+		to += n;
+		int count = 0;
+		int right = nodes.length;
+		
+		while (from < to) {
+			if ((from & 1) == 1) {
+				nodes[count++] = from++;
+			}
+			if ((to & 1) == 1) {
+				nodes[--right] = --to;
+			}
+			from >>= 1;
+			to >>= 1;
+		}
+		while (right < nodes.length) {
+			nodes[count++] = nodes[right++];
+		}
+		
+		long res = best[nodes[0]];
+		long suf = suffix[nodes[0]];
+		int sufNode = nodes[0]; // the running suffix starts in this node
+		int startNode = nodes[0];
+		int endNode = nodes[0];
+		
+		for (int k = 1; k < count; k++) {
+			int c = nodes[k];
+			if (best[c] > res) {
+				res = best[c];
+				startNode = c;
+				endNode = c;
+			}
+			if (suf + prefix[c] > res) {
+				res = suf + prefix[c];
+				startNode = sufNode;
+				endNode = c;
+			}
+			if (suffix[c] >= sum[c] + suf) {
+				sufNode = c;
+			}
+			suf = Math.max(suffix[c], sum[c] + suf);
+		}
+		
+		if (ends != null) {
+			ends[0] = startNode;
+			ends[1] = endNode;
+		}
+		return res;
+	}
+	
+	/**
+	 * walks down from node i to find where its best subarray is
+	 */
+	private Subarray bestWithin(int i) {
+		long res = best[i];
+		
+		while (i < n) {
+			int a = 2 * i;
+			int b = 2 * i + 1;
+			if (best[i] == best[a]) {
+				i = a;
+			} else if (best[i] == best[b]) {
+				i = b;
+			} else {
+				return new Subarray(suffixStart(a), prefixEnd(b), res);
+			}
+		}
+		return new Subarray(i - n, i - n + 1, res);
+	}
+	
+	/**
+	 * @return exclusive end index of the best prefix of node i
+	 */
+	private int prefixEnd(int i) {
+		while (i < n) {
+			int a = 2 * i;
+			i = prefix[i] == prefix[a] ? a : 2 * i + 1;
+		}
+		return i - n + 1;
+	}
+	
+	/**
+	 * @return start index of the best suffix of node i
+	 */
+	private int suffixStart(int i) {
+		while (i < n) {
+			int b = 2 * i + 1;
+			i = suffix[i] == suffix[b] ? b : 2 * i;
+		}
+		return i - n;
+	}
+	
+	public static void main(String[] args) {
+		long[] ar = new long[]{5, -8, 3, 4, -2, 6, -9, 1, 2};
+		MaxSubarraySegmentTree tree = new MaxSubarraySegmentTree(ar);
+		System.out.println("max subarray of everything: " + tree.maxSubarray(0, ar.length));
+		System.out.println("max subarray of [5, 9): " + tree.maxSubarray(5, 9));
+		
+		tree.update(6, -1);
+		System.out.println("after ar[6] = -1: " + tree.maxSubarray(0, ar.length));
+		System.out.println("all negative: " + tree.maxSubarray(6, 7));
+	}
+}
@@ -0,0 +1,299 @@
+package com.stablesort.segtree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Same as SegmentTreeMax, but the tree is kept off the heap and the indexes are long. So it can go well beyond the 2^30 elements 
+ * that fit into 'new int[n * 2]', and the garbage collector never has to look at it.
+ * 
+ * A single ByteBuffer can not be larger than 2GB, so the tree is split into chunks of 2^28 ints (1GB) each. Node i lives in 
+ * chunk i >>> 28. The chunks are either direct ByteBuffers, or, when a file is given, memory mapped segments of that file. 
+ * The file survives restarts: opening an existing file simply maps it back in, without any rebuilding. The file starts with a 
+ * 16 byte header: a magic number and the number of elements n. Then node i lives at byte offset 16 + i * 4, and node 0 is never used.
+ * The magic number is only written once the tree is completely built, so reopening a file that is empty, truncated, half built or 
+ * something else altogether is rejected. The ints are stored in the native byte order, so the file should be reopened on the same 
+ * kind of machine.
+ * 
+ * The chunks are read through IntBuffer views in the native byte order, which the JIT compiles down to plain memory reads. 
+ * The extra cost over the on-heap version is finding the chunk on every access. But all of the nodes below 2^28, i.e. all of the 
+ * upper levels of the tree, are in the first chunk. So max() only looks up chunks while it is on the lowest levels, and as soon as
+ * the range drops into the first chunk it continues there with int indexes. When the whole tree fits into one chunk (up to 2^27
+ * elements) that is right from the start. Measured with SegmentTreeTest.compareOffHeapPerf() over two runs, queries came out 
+ * 1-16% slower than SegmentTreeMax for 1M to 100M elements, and 4-17% slower for 150M elements, which takes two chunks.
+ * 
+ * @author Andre Violentyev
+ * Implementation inspired by Al.Cash, from: https://codeforces.com/blog/entry/18051
+ */
+public class OffHeapSegmentTreeMax implements Closeable {
+	
+	private static final int CHUNK_BITS = 28; // 2^28 ints per chunk
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	private static final long MAGIC = 0x5354_5345_4754_5245L; // "STSEGTRE"
+	private static final int HEADER_SIZE = 16; // magic, n
+	
+	private final long n; // input array length
+	private final IntBuffer[] chunks;
+	private final IntBuffer first; // chunks[0], holds nodes 1 to 2^28 - 1, so all of the upper levels of the tree
+	private final MappedByteBuffer[] mapped; // null if the tree is not backed by a file
+	private final RandomAccessFile file;
+	
+	/**
+	 * Builds the tree in direct (off heap) memory
+	 * 
+	 * @param n - number of elements
+	 * @param values - gives the initial value of each element, called once per index from 0 to n - 1
+	 */
+	public OffHeapSegmentTreeMax(long n, LongToIntFunction values) {
+		this.n = n;
+		this.file = null;
+		this.mapped = null;
+		
+		int numChunks = numChunks(n);
+		chunks = new IntBuffer[numChunks];
+		for (int c = 0; c < numChunks; c++) {
+			long size = Math.min(CHUNK_MASK + 1, 2 * n - ((long) c << CHUNK_BITS));
+			chunks[c] = ByteBuffer.allocateDirect((int) (size * 4)).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+		
+		first = numChunks > 0 ? chunks[0] : null;
+		build(values);
+	}
+	
+	/**
+	 * Builds the tree in direct (off heap) memory
+	 * @param ar
+	 */
+	public OffHeapSegmentTreeMax(int[] ar) {
+		this(ar.length, i -> ar[(int) i]);
+	}
+	
+	/**
+	 * Opens the tree stored in the file. If the file does not exist, it gets created and the tree is built from 'values'.
+	 * 
+	 * @param path
+	 * @param n - number of elements. Only used if the file does not exist yet.
+	 * @param values - gives the initial value of each element. Only used if the file does not exist yet. 
+	 * 		If null, all of the values are Integer.MIN_VALUE, i.e. empty.
+	 * @throws IOException
+	 */
+	public OffHeapSegmentTreeMax(Path path, long n, LongToIntFunction values) throws IOException {
+		boolean exists = Files.exists(path);
+		this.file = new RandomAccessFile(path.toFile(), "rw");
+		
+		if (exists) {
+			this.n = readHeader(file, path);
+		} else {
+			this.n = n;
+			file.setLength(HEADER_SIZE + n * 8); // the magic number stays 0 until the tree is built
+			file.seek(8);
+			file.writeLong(n);
+		}
+		
+		FileChannel channel = file.getChannel();
+		int numChunks = numChunks(this.n);
+		chunks = new IntBuffer[numChunks];
+		mapped = new MappedByteBuffer[numChunks];
+		
+		for (int c = 0; c < numChunks; c++) {
+			long start = (long) c << CHUNK_BITS;
+			long size = Math.min(CHUNK_MASK + 1, 2 * this.n - start);
+			mapped[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + start * 4, size * 4);
+			chunks[c] = mapped[c].order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+		
+		first = numChunks > 0 ? chunks[0] : null;
+		if (!exists) {
+			build(values);
+			force();
+			file.seek(0);
+			file.writeLong(MAGIC);
+		}
+	}
+	
+	/**
+	 * Checks that the file holds a completely built tree, closing the file if it does not
+	 * @return number of elements
+	 */
+	private static long readHeader(RandomAccessFile file, Path path) throws IOException {
+		long length = file.length();
+		long magic = 0;
+		long n = -1;
+		if (length >= HEADER_SIZE) {
+			file.seek(0);
+			magic = file.readLong();
+			n = file.readLong();
+		}
+		
+		if (magic != MAGIC || n < 0 || length != HEADER_SIZE + n * 8) {
+			file.close();
+			throw new IllegalArgumentException(path + " is not a completely built OffHeapSegmentTreeMax file, or it has been truncated");
+		}
+		return n;
+	}
+	
+	private static int numChunks(long n) {
+		return (int) ((2 * n + CHUNK_MASK) >>> CHUNK_BITS);
+	}
+	
+	/**
+	 * stores the values into the right half of the tree, then fills in the parents
+	 */
+	private void build(LongToIntFunction values) {
+		for (long i = 0; i < n; i++) {
+			set(i + n, values == null ? Integer.MIN_VALUE : values.applyAsInt(i));
+		}
+		
+		for (long i = n - 1; i > 0; i--) {
+			set(i, Math.max(get(2 * i), get(2 * i + 1)));
+		}
+	}
+	
+	private int get(long i) {
+		return chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & CHUNK_MASK));
+	}
+	
+	private void set(long i, int value) {
+		chunks[(int) (i >>> CHUNK_BITS)].put((int) (i & CHUNK_MASK), value);
+	}
+	
+	/**
+	 * @return number of elements
+	 */
+	public long length() {
+		return n;
+	}
+	
+	/**
+	 * @param i - index to original array
+	 * @return the value at index i
+	 */
+	public int valueAt(long i) {
+		return get(i + n);
+	}
+	
+	/**
+	 * @param i - index to original array, inclusive
+	 * @param value - new value to be saved off
+	 */
+	public void update(long i, int value) {
+		i += n;
+		set(i, value);
+		int newValue;
+		
+		while (i > 1) {
+			i >>= 1; // shift right is the same as divide by 2
+			newValue = Math.max(get(2 * i), get(2 * i + 1));
+			
+			if (get(i) != newValue) {
+				set(i, newValue);
+			} else {
+				return; // since no update is made 
+			}
+		}
+	}
+	
+	/**
+	 * Same bottom-up walk as SegmentTreeMax.max()
+	 * 
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return Integer.MIN_VALUE if the range is empty
+	 */
+	public int max(long from, long to) {
+		from += n; // go to second half of the tree
+		to += n;
+		int max = Integer.MIN_VALUE;
+		
+		while (from < to && to > CHUNK_MASK + 1) { // lowest levels, that might be spread over several chunks
+			if ((from & 1) == 1) {
+				max = Math.max(max, get(from));
+				from++;
+			}
+			if ((to & 1) == 1) {
+				to--;
+				max = Math.max(max, get(to));
+			}
+			from >>= 1;
+			to >>= 1;
+		}
+		
+		if (from >= to) {
+			return max;
+		}
+		return maxFirst((int) from, (int) to, max);
+	}
+	
+	/**
+	 * rest of the max() walk, once the whole range is within the first chunk, so there is no chunk to look up and the indexes fit into an int
+	 */
+	private int maxFirst(int from, int to, int max) {
+		IntBuffer tree = first;
+		
+		while (from < to) {
+			if ((from & 1) == 1) {
+				max = Math.max(max, tree.get(from));
+				from++;
+			}
+			if ((to & 1) == 1) {
+				to--;
+				max = Math.max(max, tree.get(to));
+			}
+			from >>= 1;
+			to >>= 1;
+		}
+		
+		return max;
+	}
+	
+	/**
+	 * Writes any changes out to the file. Does nothing if the tree is not backed by a file.
+	 */
+	public void force() {
+		if (mapped != null) {
+			for (MappedByteBuffer m : mapped) {
+				m.force();
+			}
+		}
+	}
+	
+	/**
+	 * Flushes the changes and closes the file. The memory itself, mapped or direct, is released once the buffers are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		if (file != null) {
+			file.close();
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		Path path = Files.createTempFile("segtree", ".bin");
+		Files.delete(path); // so that the constructor creates it
+		
+		long len = 10_000_000;
+		try (OffHeapSegmentTreeMax tree = new OffHeapSegmentTreeMax(path, len, i -> (int) (i % 1000))) {
+			tree.update(9_000_000, 5000);
+			System.out.println("max(0, 500) = " + tree.max(0, 500));
+			System.out.println("max(0, len) = " + tree.max(0, len));
+		}
+		
+		// reopen the same file, no rebuilding needed
+		try (OffHeapSegmentTreeMax tree = new OffHeapSegmentTreeMax(path, 0, null)) {
+			System.out.println("length = " + tree.length());
+			System.out.println("max(5_000_000, len) = " + tree.max(5_000_000, len));
+		}
+		
+		Files.delete(path);
+	}
+}
@@ -0,0 +1,80 @@
+package com.stablesort.segtree;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Helper for building the bottom-up segment trees (SegmentTree, SegmentTreeMax, etc.) on multiple cores.
+ * 
+ * In those trees node i is made from nodes 2i and 2i+1, so all of the nodes in [2^k, 2^(k+1)) only depend on nodes from the 
+ * level below, [2^(k+1), 2^(k+2)), and not on each other. So the levels are built one after another, from the bottom up, 
+ * but each level is split up across the pool.
+ * 
+ * @author Andre Violentyev
+ */
+final class ParallelBuild {
+	
+	static final int THRESHOLD = 1 << 14; // ranges shorter than this are not worth splitting further
+	
+	private ParallelBuild() {
+	}
+	
+	/**
+	 * Calls makeNode for every internal node, from n-1 down to 1, making sure that both children of a node are done before the node itself.
+	 * 
+	 * @param n - input array length
+	 * @param pool - if null, builds on the current thread
+	 * @param makeNode - i -> tree[i] = f(tree[2i], tree[2i+1])
+	 */
+	static void build(int n, ForkJoinPool pool, IntConsumer makeNode) {
+		if (pool == null) {
+			for (int i = n - 1; i > 0; i--) {
+				makeNode.accept(i);
+			}
+			return;
+		}
+		
+		int hi = n; // exclusive
+		
+		while (hi > 1) {
+			int lo = Integer.highestOneBit(hi - 1); // level is [lo, hi)
+			
+			if (hi - lo <= THRESHOLD) {
+				for (int i = hi - 1; i >= lo; i--) {
+					makeNode.accept(i);
+				}
+			} else {
+				pool.invoke(new LevelTask(lo, hi, makeNode));
+			}
+			
+			hi = lo;
+		}
+	}
+	
+	private static class LevelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		final int from;
+		final int to;
+		final IntConsumer makeNode;
+		
+		LevelTask(int from, int to, IntConsumer makeNode) {
+			this.from = from;
+			this.to = to;
+			this.makeNode = makeNode;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					makeNode.accept(i);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new LevelTask(from, mid, makeNode), new LevelTask(mid, to, makeNode));
+			}
+		}
+	}
+}
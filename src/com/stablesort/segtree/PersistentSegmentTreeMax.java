@@ -0,0 +1,230 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+
+/**
+ * Persistent version of SegmentTreeMax: every update creates a new version of the tree, and max(version, from, to) can be asked of any
+ * version, not just the latest one.
+ * 
+ * Rather than copying the whole tree, an update only copies the O(log n) nodes on the path from the root to the updated leaf. 
+ * The new nodes point to the old, unchanged, subtrees for everything else. So each version costs O(log n) extra memory.
+ * 
+ * Nodes are not objects. They live in a pool of parallel int[] arrays (left child, right child, max) and a node is just its index into 
+ * those arrays. Node 0 is never used. Versions are handles into an array of root nodes.
+ * 
+ * Versions that are no longer needed can be released. The memory they use is reclaimed by compact(), which copies the nodes that are 
+ * still reachable from any live version into a fresh pool.
+ * 
+ * @author Andre Violentyev
+ */
+public class PersistentSegmentTreeMax {
+	private final int n; // input array length
+	
+	// node pool
+	private int[] left;
+	private int[] right;
+	private int[] max;
+	private int nodeCount = 1; // node 0 is never used
+	
+	private int[] roots; // root node for each version, 0 if released
+	private int versionCount = 0;
+	
+	/**
+	 * Builds version 0 of the tree
+	 * @param ar
+	 */
+	public PersistentSegmentTreeMax(int[] ar) {
+		n = ar.length;
+		int capacity = Math.max(4, 2 * n);
+		left = new int[capacity];
+		right = new int[capacity];
+		max = new int[capacity];
+		roots = new int[16];
+		
+		addVersion(n > 0 ? build(ar, 0, n) : 0);
+	}
+	
+	private int build(int[] ar, int lo, int hi) {
+		if (hi - lo == 1) {
+			return newNode(0, 0, ar[lo]);
+		}
+		int mid = (lo + hi) >>> 1;
+		int l = build(ar, lo, mid);
+		int r = build(ar, mid, hi);
+		return newNode(l, r, Math.max(max[l], max[r]));
+	}
+	
+	private int newNode(int l, int r, int value) {
+		if (nodeCount == max.length) {
+			int capacity = max.length * 2;
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			max = Arrays.copyOf(max, capacity);
+		}
+		left[nodeCount] = l;
+		right[nodeCount] = r;
+		max[nodeCount] = value;
+		return nodeCount++;
+	}
+	
+	private int addVersion(int root) {
+		if (versionCount == roots.length) {
+			roots = Arrays.copyOf(roots, roots.length * 2);
+		}
+		roots[versionCount] = root;
+		return versionCount++;
+	}
+	
+	private int root(int version) {
+		if (version < 0 || version >= versionCount || (roots[version] == 0 && n > 0)) {
+			throw new IllegalArgumentException("No such version, or it has been released: " + version);
+		}
+		return roots[version];
+	}
+	
+	/**
+	 * @return the most recent version
+	 */
+	public int latest() {
+		return versionCount - 1;
+	}
+	
+	/**
+	 * @return number of nodes in the pool, including the ones that are only used by released versions, until compact() is called
+	 */
+	public int nodeCount() {
+		return nodeCount - 1;
+	}
+	
+	/**
+	 * Makes a new version that is the same as the given version, except for the value at index i. The old version is unchanged.
+	 * 
+	 * @param version - version to start from
+	 * @param i - index to original array
+	 * @param value - new value to be saved off
+	 * @return handle of the new version
+	 */
+	public int update(int version, int i, int value) {
+		return addVersion(update(root(version), 0, n, i, value));
+	}
+	
+	/**
+	 * Same as update(latest(), i, value)
+	 * @param i
+	 * @param value
+	 * @return handle of the new version
+	 */
+	public int update(int i, int value) {
+		return update(latest(), i, value);
+	}
+	
+	/**
+	 * @return copy of the node with the value at index i changed
+	 */
+	private int update(int node, int lo, int hi, int i, int value) {
+		if (hi - lo == 1) {
+			return newNode(0, 0, value);
+		}
+		int mid = (lo + hi) >>> 1;
+		int l = left[node];
+		int r = right[node];
+		if (i < mid) {
+			l = update(l, lo, mid, i, value);
+		} else {
+			r = update(r, mid, hi, i, value);
+		}
+		return newNode(l, r, Math.max(max[l], max[r]));
+	}
+	
+	/**
+	 * @param version
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return Integer.MIN_VALUE if the range is empty
+	 */
+	public int max(int version, int from, int to) {
+		if (from >= to) {
+			return Integer.MIN_VALUE;
+		}
+		return max(root(version), 0, n, from, to);
+	}
+	
+	private int max(int node, int lo, int hi, int from, int to) {
+		if (from <= lo && hi <= to) {
+			return max[node];
+		}
+		int mid = (lo + hi) >>> 1;
+		int q = Integer.MIN_VALUE;
+		if (from < mid) {
+			q = max(left[node], lo, mid, from, to);
+		}
+		if (to > mid) {
+			q = Math.max(q, max(right[node], mid, hi, from, to));
+		}
+		return q;
+	}
+	
+	/**
+	 * Marks the version as no longer needed. Its nodes are not freed until compact() is called, since they might be shared
+	 * with other versions.
+	 * @param version
+	 */
+	public void release(int version) {
+		root(version); // validates it
+		roots[version] = 0;
+	}
+	
+	/**
+	 * Copies all of the nodes that are reachable from the live versions into a new, smaller pool, dropping the nodes that were
+	 * only used by the released versions. Version handles stay the same. Copying is O(number of live nodes), but it also allocates 
+	 * a temporary old to new index map with a slot for every node in the old pool, so memory is O(nodeCount()) while it runs.
+	 */
+	public void compact() {
+		int[] moved = new int[nodeCount]; // old node index -> new node index, 0 if not copied yet
+		int[] oldLeft = left;
+		int[] oldRight = right;
+		int[] oldMax = max;
+		
+		int capacity = Math.max(4, 2 * n);
+		left = new int[capacity];
+		right = new int[capacity];
+		max = new int[capacity];
+		nodeCount = 1;
+		
+		for (int v = 0; v < versionCount; v++) {
+			if (roots[v] != 0) {
+				roots[v] = copy(roots[v], moved, oldLeft, oldRight, oldMax);
+			}
+		}
+	}
+	
+	/**
+	 * copies the subtree into the new pool, unless it has already been copied while going through another version
+	 */
+	private int copy(int node, int[] moved, int[] oldLeft, int[] oldRight, int[] oldMax) {
+		if (node == 0) {
+			return 0;
+		}
+		if (moved[node] == 0) {
+			int l = copy(oldLeft[node], moved, oldLeft, oldRight, oldMax);
+			int r = copy(oldRight[node], moved, oldLeft, oldRight, oldMax);
+			moved[node] = newNode(l, r, oldMax[node]);
+		}
+		return moved[node];
+	}
+	
+	public static void main(String[] args) {
+		int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9};
+		PersistentSegmentTreeMax tree = new PersistentSegmentTreeMax(ar);
+		int v0 = tree.latest();
+		int v1 = tree.update(v0, 1, 3);
+		int v2 = tree.update(v1, 6, 20);
+		
+		System.out.println("v0 max=" + tree.max(v0, 0, 8) + ", v1 max=" + tree.max(v1, 0, 8) + ", v2 max=" + tree.max(v2, 0, 8));
+		System.out.println("nodes=" + tree.nodeCount());
+		
+		tree.release(v1);
+		tree.compact();
+		System.out.println("after compact: nodes=" + tree.nodeCount() + ", v2 max(0, 4)=" + tree.max(v2, 0, 4));
+	}
+}
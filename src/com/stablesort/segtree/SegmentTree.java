@@ -3,7 +3,9 @@ package com.stablesort.segtree;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BinaryOperator ;
+import java.util.function.Predicate;
 
 /**
  * This implementation works on any binary associate function, such as min/max/addition/multiplication/xor/etc.
@@ -27,6 +29,17 @@ public class SegmentTree<T> {
 	 * @param f - any binary associate function, such as min/max/addition/multiplication/xor/etc. For example: (a, b) -> Math.max(a, b)
 	 */
 	public SegmentTree(List<T> ar, BinaryOperator<T> f){
+		this(ar, f, null);
+	}
+	
+	/**
+	 * Builds the tree level by level on the pool, which pays off when f is expensive. See ParallelBuild
+	 * 
+	 * @param ar
+	 * @param f - any binary associate function, such as min/max/addition/multiplication/xor/etc. For example: (a, b) -> Math.max(a, b)
+	 * @param pool - for example ForkJoinPool.commonPool(). If null, builds on the current thread.
+	 */
+	public SegmentTree(List<T> ar, BinaryOperator<T> f, ForkJoinPool pool){
 		n = ar.size();		
 		tree = new ArrayList<>(2*n);
 		this.f = f;
@@ -40,6 +53,11 @@ public class SegmentTree<T> {
 		for (int i = 0; i < n; i++) {
 			tree.add(ar.get(i));
 		}
+		
+		if (pool != null) {
+			ParallelBuild.build(n, pool, i -> tree.set(i, f.apply(tree.get(2 * i), tree.get(2 * i + 1))));
+			return;
+		}
 						
 		for (int i = n - 1; i > 0; i--) {			
 			tree.set(i, f.apply(tree.get(2 * i), tree.get(2 * i + 1)));
@@ -102,6 +120,152 @@ public class SegmentTree<T> {
         return q;
     }
     
+    /**
+     * Runs a batch of query(froms[k], tos[k]) calls in parallel, see BatchQuery. The results are the same as calling query() one at a time.
+     * 
+     * @param froms - inclusive
+     * @param tos - exclusive
+     * @param out - out[k] gets the result for froms[k] to tos[k]
+     * @param sorted - TRUE to run the queries ordered by 'from', for better cache locality
+     */
+    public void query(int[] froms, int[] tos, T[] out, boolean sorted) {
+    	BatchQuery.run(froms, sorted, k -> out[k] = query(froms[k], tos[k]));
+    }
+    
+    /**
+     * Runs a batch of query(froms[k], tos[k]) calls in parallel. See query(froms, tos, out, sorted)
+     * 
+     * @param froms - inclusive
+     * @param tos - exclusive
+     * @param out - out[k] gets the result for froms[k] to tos[k]
+     */
+    public void query(int[] froms, int[] tos, T[] out) {
+    	query(froms, tos, out, false);
+    }
+    
+    /**
+     * Returns the position of the query(from, to) value. This only makes sense when f picks one of its arguments, such as max or min. 
+     * If there are several, returns the leftmost one. O(log n)
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @return -1 if the range is empty
+     */
+    public int argMax(int from, int to) {
+    	final T q = query(from, to);
+    	return q == null ? -1 : findFirst(from, to, v -> v.equals(q));
+    }
+    
+    /**
+     * Finds the first index in [from, to) whose value satisfies p, in O(log n). 
+     * 
+     * It makes the same bottom-up walk as query(), but checks p against each of the nodes that cover the range. The nodes picked up 
+     * from the left end come in left to right order, so the first one that satisfies p is the answer. The nodes from the right end
+     * come in the reverse order, so for those the last one that satisfies p is kept. Then it walks down from that node, always 
+     * going into the left child if it satisfies p.
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @param p - has to be true for a node whenever it is true for any of the values under that node. For example, if f is max, 
+     * 		then v -> v >= x
+     * @return -1 if none of the values satisfy p
+     */
+    public int findFirst(int from, int to, Predicate<T> p) {
+    	from += n; // go to second half of the array
+    	to += n;
+    	int found = -1;
+    	
+    	while (from < to) {
+    		if ((from & 1) == 1) {
+    			if (p.test(tree.get(from))) {
+    				return descend(from, p, true);
+    			}
+    			from++;
+    		}
+    		if ((to & 1) == 1) {
+    			to--;
+    			if (p.test(tree.get(to))) {
+    				found = to;
+    			}
+    		}
+    		from >>= 1;
+    		to >>= 1;
+    	}
+    	
+    	return found == -1 ? -1 : descend(found, p, true);
+    }
+    
+    /**
+     * Finds the first index starting at 'from' whose value satisfies p. See findFirst(from, to, p)
+     * @param from - inclusive
+     * @param p
+     * @return -1 if none of the values satisfy p
+     */
+    public int findFirst(int from, Predicate<T> p) {
+    	return findFirst(from, n, p);
+    }
+    
+    /**
+     * Finds the last index in [from, to) whose value satisfies p, in O(log n). Mirror image of findFirst()
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @param p - has to be true for a node whenever it is true for any of the values under that node
+     * @return -1 if none of the values satisfy p
+     */
+    public int findLast(int from, int to, Predicate<T> p) {
+    	from += n;
+    	to += n;
+    	int found = -1;
+    	
+    	while (from < to) {
+    		if ((from & 1) == 1) {
+    			if (p.test(tree.get(from))) {
+    				found = from;
+    			}
+    			from++;
+    		}
+    		if ((to & 1) == 1) {
+    			to--;
+    			if (p.test(tree.get(to))) {
+    				return descend(to, p, false);
+    			}
+    		}
+    		from >>= 1;
+    		to >>= 1;
+    	}
+    	
+    	return found == -1 ? -1 : descend(found, p, false);
+    }
+    
+    /**
+     * Finds the last index before 'to' whose value satisfies p. See findLast(from, to, p)
+     * @param to - exclusive
+     * @param p
+     * @return -1 if none of the values satisfy p
+     */
+    public int findLast(int to, Predicate<T> p) {
+    	return findLast(0, to, p);
+    }
+    
+    /**
+     * walks down from node i, which satisfies p, to a leaf that satisfies p
+     * @param i
+     * @param p
+     * @param leftFirst - TRUE to find the leftmost leaf, FALSE for the rightmost
+     * @return index to original array
+     */
+    private int descend(int i, Predicate<T> p, boolean leftFirst) {
+    	while (i < n) {
+    		if (leftFirst) {
+    			i = p.test(tree.get(2 * i)) ? 2 * i : 2 * i + 1;
+    		} else {
+    			i = p.test(tree.get(2 * i + 1)) ? 2 * i + 1 : 2 * i;
+    		}
+    	}
+    	return i - n;
+    }
+    
 	public static void main(String[] args) {
 		List<Double> ar = Arrays.asList(6.1, 10.5, 5.2, 2.0, 7.1, 1.3, 0.3, 9.2);
 		BinaryOperator<Double> f = (a, b) -> Math.max(a, b);
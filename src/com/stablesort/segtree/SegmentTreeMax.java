@@ -1,6 +1,8 @@
 package com.stablesort.segtree;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 
 /**
  * This implementation, unlike the more general SegmentTree, does only max operation. But it is about x2 faster for querying
@@ -25,6 +27,21 @@ public class SegmentTreeMax {
 		}
 	}
 	
+	/**
+	 * Builds the tree level by level on the pool. See ParallelBuild
+	 * @param ar
+	 * @param pool - for example ForkJoinPool.commonPool(). If null, builds on the current thread.
+	 */
+	public SegmentTreeMax(int[] ar, ForkJoinPool pool) {
+		n = ar.length;		
+		tree = new int[n * 2];
+		
+		// store into the right end of the array
+		System.arraycopy(ar, 0, tree, n, n);
+		
+		ParallelBuild.build(n, pool, i -> tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]));
+	}
+	
 	/**
 	 * @param i - index to original array, inclusive
 	 * @param value - new value to be saved off
@@ -81,6 +98,152 @@ public class SegmentTreeMax {
         return max;
     }
 	
+    /**
+     * Runs a batch of max(froms[k], tos[k]) queries in parallel, see BatchQuery. The results are the same as calling max() one at a time.
+     * 
+     * @param froms - inclusive
+     * @param tos - exclusive
+     * @param out - out[k] gets the max of froms[k] to tos[k]
+     * @param sorted - TRUE to run the queries ordered by 'from', for better cache locality
+     */
+    public void max(int[] froms, int[] tos, int[] out, boolean sorted) {
+    	BatchQuery.run(froms, sorted, k -> out[k] = max(froms[k], tos[k]));
+    }
+    
+    /**
+     * Runs a batch of max(froms[k], tos[k]) queries in parallel. See max(froms, tos, out, sorted)
+     * 
+     * @param froms - inclusive
+     * @param tos - exclusive
+     * @param out - out[k] gets the max of froms[k] to tos[k]
+     */
+    public void max(int[] froms, int[] tos, int[] out) {
+    	max(froms, tos, out, false);
+    }
+    
+    /**
+     * Returns the position of the max value in the range. If there are several, returns the leftmost one. O(log n)
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @return -1 if the range is empty
+     */
+    public int argMax(int from, int to) {
+    	final int max = max(from, to);
+    	return findFirst(from, to, v -> v >= max);
+    }
+    
+    /**
+     * Finds the first index in [from, to) whose value satisfies p, in O(log n). For example, p = v -> v >= x gives the first value 
+     * that is at least x.
+     * 
+     * It makes the same bottom-up walk as max(), but checks p against each of the nodes that cover the range. The nodes picked up 
+     * from the left end come in left to right order, so the first one that satisfies p is the answer. The nodes from the right end
+     * come in the reverse order, so for those the last one that satisfies p is kept. Then it walks down from that node, always 
+     * going into the left child if it satisfies p.
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @param p - has to be true for the max of a node whenever it is true for any of the values under that node, 
+     * 		like v -> v >= x or v -> v > x
+     * @return -1 if none of the values satisfy p
+     */
+    public int findFirst(int from, int to, IntPredicate p) {
+    	from += n; // go to second half of the array
+    	to += n;
+    	int found = -1;
+    	
+    	while (from < to) {
+    		if ((from & 1) == 1) {
+    			if (p.test(tree[from])) {
+    				return descend(from, p, true);
+    			}
+    			from++;
+    		}
+    		if ((to & 1) == 1) {
+    			to--;
+    			if (p.test(tree[to])) {
+    				found = to;
+    			}
+    		}
+    		from >>= 1;
+    		to >>= 1;
+    	}
+    	
+    	return found == -1 ? -1 : descend(found, p, true);
+    }
+    
+    /**
+     * Finds the first index starting at 'from' whose value satisfies p. See findFirst(from, to, p)
+     * @param from - inclusive
+     * @param p
+     * @return -1 if none of the values satisfy p
+     */
+    public int findFirst(int from, IntPredicate p) {
+    	return findFirst(from, n, p);
+    }
+    
+    /**
+     * Finds the last index in [from, to) whose value satisfies p, in O(log n). Mirror image of findFirst()
+     * 
+     * @param from - inclusive
+     * @param to - exclusive
+     * @param p - has to be true for the max of a node whenever it is true for any of the values under that node
+     * @return -1 if none of the values satisfy p
+     */
+    public int findLast(int from, int to, IntPredicate p) {
+    	from += n;
+    	to += n;
+    	int found = -1;
+    	
+    	while (from < to) {
+    		if ((from & 1) == 1) {
+    			if (p.test(tree[from])) {
+    				found = from;
+    			}
+    			from++;
+    		}
+    		if ((to & 1) == 1) {
+    			to--;
+    			if (p.test(tree[to])) {
+    				return descend(to, p, false);
+    			}
+    		}
+    		from >>= 1;
+    		to >>= 1;
+    	}
+    	
+    	return found == -1 ? -1 : descend(found, p, false);
+    }
+    
+    /**
+     * Finds the last index before 'to' whose value satisfies p. See findLast(from, to, p)
+     * @param to - exclusive
+     * @param p
+     * @return -1 if none of the values satisfy p
+     */
+    public int findLast(int to, IntPredicate p) {
+    	return findLast(0, to, p);
+    }
+    
+    /**
+     * walks down from node i, which satisfies p, to a leaf that satisfies p
+     * @param i
+     * @param p
+     * @param leftFirst - TRUE to find the leftmost leaf, FALSE for the rightmost
+     * @return index to original array
+     */
+    private int descend(int i, IntPredicate p, boolean leftFirst) {
+    	while (i < n) {
+    		if (leftFirst) {
+    			i = p.test(tree[2 * i]) ? 2 * i : 2 * i + 1;
+    		} else {
+    			i = p.test(tree[2 * i + 1]) ? 2 * i + 1 : 2 * i;
+    		}
+    	}
+    	return i - n;
+    }
+	
 	public static void main(String[] args) {
 		//int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9};
 		int[] ar = new int[]{12, 7, 1, 0, 9};
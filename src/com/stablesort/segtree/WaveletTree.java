@@ -0,0 +1,211 @@
+package com.stablesort.segtree;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Answers two kinds of static (read-only) range queries that a SegmentTree can not: the k-th smallest value in [from, to), and how many 
+ * values in [from, to) are less than x. Both in O(log sigma), where sigma is the number of distinct values.
+ * 
+ * The values are first compressed to their rank 0..sigma-1 among the distinct values. Then, going from the highest bit of the rank to the lowest,
+ * each level keeps one bit per element and stably moves all of the elements with a 0 bit in front of the ones with a 1 bit for the next 
+ * level (this layout is known as a wavelet matrix). A range [from, to) on one level maps to a range in either the 0 part or the 1 part
+ * of the next level, and the new ends are found by counting the 0 bits before 'from' and 'to', i.e. with rank(). 
+ * 
+ * The bits are packed into longs. rank() is O(1): the number of 1 bits before each word is precomputed, and the rest is a Long.bitCount()
+ * within the word. 
+ * 
+ * Memory overhead per element: log sigma levels, each taking 1 bit plus 0.5 bit for the rank counts, so 1.5 * log sigma bits. For example 
+ * 30 bits (under 4 bytes) per element for a million distinct values. Plus 4 bytes per distinct value for the value table. 
+ * The input array is not kept.
+ * 
+ * Each level is built in parallel: chunks of the array set their bits and count their zeros independently, and then each chunk knows
+ * exactly where its elements go on the next level.
+ * 
+ * @author Andre Violentyev
+ */
+public class WaveletTree {
+	
+	private static final int CHUNK_SIZE = 1 << 16; // multiple of 64 so that chunks never share a word
+	
+	private final int n; // input array length
+	private final int[] values; // distinct values, sorted. The compressed value is the index into this array
+	private final int levels;
+	private final long[][] bits; // bits[level], the highest bit of the compressed value is level 0
+	private final int[][] ranks; // ranks[level][w] = number of 1 bits in words 0..w-1
+	private final int[] zeros; // number of 0 bits on each level
+	
+	public WaveletTree(int[] ar) {
+		n = ar.length;
+		
+		int[] sorted = ar.clone();
+		Arrays.parallelSort(sorted);
+		int u = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (u == 0 || sorted[i] != sorted[u - 1]) {
+				sorted[u++] = sorted[i];
+			}
+		}
+		values = Arrays.copyOf(sorted, u);
+		
+		levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(u - 1));
+		bits = new long[levels][];
+		ranks = new int[levels][];
+		zeros = new int[levels];
+		
+		int[] cur = new int[n];
+		IntStream.range(0, n).parallel().forEach(i -> cur[i] = Arrays.binarySearch(values, ar[i]));
+		int[] next = new int[n];
+		
+		for (int level = 0; level < levels; level++) {
+			buildLevel(level, cur, next);
+			System.arraycopy(next, 0, cur, 0, n);
+		}
+	}
+	
+	/**
+	 * sets the bits for this level from cur[] and stably partitions cur[] into next[] by that bit
+	 */
+	private void buildLevel(int level, int[] cur, int[] next) {
+		final int shift = levels - 1 - level;
+		final long[] words = new long[(n >>> 6) + 1];
+		final int numChunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final int[] chunkZeros = new int[numChunks];
+		
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			int end = Math.min(n, (c + 1) * CHUNK_SIZE);
+			int z = 0;
+			for (int i = c * CHUNK_SIZE; i < end; i++) {
+				if (((cur[i] >>> shift) & 1) == 1) {
+					words[i >>> 6] |= 1L << i;
+				} else {
+					z++;
+				}
+			}
+			chunkZeros[c] = z;
+		});
+		
+		// where each chunk's zeros and ones start on the next level
+		int[] zeroStart = new int[numChunks];
+		int[] oneStart = new int[numChunks];
+		int totalZeros = 0;
+		for (int c = 0; c < numChunks; c++) {
+			zeroStart[c] = totalZeros;
+			totalZeros += chunkZeros[c];
+		}
+		int ones = totalZeros;
+		for (int c = 0; c < numChunks; c++) {
+			oneStart[c] = ones;
+			ones += Math.min(n, (c + 1) * CHUNK_SIZE) - c * CHUNK_SIZE - chunkZeros[c];
+		}
+		
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			int end = Math.min(n, (c + 1) * CHUNK_SIZE);
+			int z = zeroStart[c];
+			int o = oneStart[c];
+			for (int i = c * CHUNK_SIZE; i < end; i++) {
+				if (((cur[i] >>> shift) & 1) == 1) {
+					next[o++] = cur[i];
+				} else {
+					next[z++] = cur[i];
+				}
+			}
+		});
+		
+		int[] rank = new int[words.length];
+		for (int w = 1; w < words.length; w++) {
+			rank[w] = rank[w - 1] + Long.bitCount(words[w - 1]);
+		}
+		
+		bits[level] = words;
+		ranks[level] = rank;
+		zeros[level] = totalZeros;
+	}
+	
+	/**
+	 * @return number of 1 bits on the level before index i
+	 */
+	private int rank1(int level, int i) {
+		long word = bits[level][i >>> 6];
+		return ranks[level][i >>> 6] + Long.bitCount(word & ((1L << i) - 1)); // shift distance is taken mod 64
+	}
+	
+	/**
+	 * @return number of 0 bits on the level before index i
+	 */
+	private int rank0(int level, int i) {
+		return i - rank1(level, i);
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param k - starts at 1, has to be at most to - from
+	 * @return the k-th smallest value in the range
+	 */
+	public int kthSmallest(int from, int to, int k) {
+		if (k < 1 || k > to - from) {
+			throw new IllegalArgumentException("k must be from 1 to " + (to - from) + ": " + k);
+		}
+		
+		int v = 0;
+		for (int level = 0; level < levels; level++) {
+			int zFrom = rank0(level, from);
+			int zTo = rank0(level, to);
+			int z = zTo - zFrom; // number of 0 bits in the range
+			
+			if (k <= z) {
+				from = zFrom;
+				to = zTo;
+			} else {
+				k -= z;
+				from = zeros[level] + (from - zFrom);
+				to = zeros[level] + (to - zTo);
+				v |= 1 << (levels - 1 - level);
+			}
+		}
+		return values[v];
+	}
+	
+	/**
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param x
+	 * @return number of values in the range that are less than x
+	 */
+	public int countLess(int from, int to, int x) {
+		int r = Arrays.binarySearch(values, x);
+		if (r < 0) {
+			r = -r - 1; // insertion point, i.e. the number of distinct values less than x
+		}
+		if (r == 0) {
+			return 0;
+		}
+		if (r >= values.length) {
+			return to - from;
+		}
+		
+		int count = 0;
+		for (int level = 0; level < levels && from < to; level++) {
+			int zFrom = rank0(level, from);
+			int zTo = rank0(level, to);
+			
+			if (((r >>> (levels - 1 - level)) & 1) == 1) { // everything with a 0 bit here is less than r
+				count += zTo - zFrom;
+				from = zeros[level] + (from - zFrom);
+				to = zeros[level] + (to - zTo);
+			} else {
+				from = zFrom;
+				to = zTo;
+			}
+		}
+		return count;
+	}
+	
+	public static void main(String[] args) {
+		int[] ar = new int[]{6, 10, 5, 2, 7, 1, 0, 9, 5};
+		WaveletTree tree = new WaveletTree(ar);
+		System.out.println("3rd smallest in [2, 9) = " + tree.kthSmallest(2, 9, 3));
+		System.out.println("count < 6 in [0, 5) = " + tree.countLess(0, 5, 6));
+	}
+}
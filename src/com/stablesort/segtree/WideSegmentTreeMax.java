@@ -0,0 +1,176 @@
+package com.stablesort.segtree;
+
+/**
+ * Same contract as SegmentTreeMax (max(from, to) and update(i, value)), but every node has 16 children instead of 2.
+ * 
+ * With 2 children per node, a query over 100M elements goes through 27 levels, and on most of them the node is in a different cache line,
+ * so each level is a cache miss. With 16 children the tree is only 7 levels deep, and the 16 children of a node sit next to each other
+ * in memory: 16 ints = 64 bytes, about one cache line.
+ * 
+ * The levels are stored one after another, starting with the leaves. Each level is padded to a multiple of 16 with Integer.MIN_VALUE, 
+ * and level h+1 holds the max of every block of 16 from level h. On top of the values themselves, for each slot we also keep the max 
+ * from the start of its block up to it (prefix) and from it to the end of its block (suffix). So when a query range only partially covers 
+ * a block, that part is a single lookup rather than a scan. The cost is 3x the memory, and update() has to redo the prefix/suffix of one 
+ * block per level.
+ * 
+ * The incubator Vector API (jdk.incubator.vector) was left out on purpose: it needs extra JVM flags to compile and run, and with the
+ * prefix/suffix lookups the only loops left are the 16-wide ones in update(), which are simple enough for the JIT to vectorize.
+ * 
+ * @author Andre Violentyev
+ */
+public class WideSegmentTreeMax {
+	private static final int BITS = 4;
+	private static final int B = 1 << BITS; // children per node
+	private static final int MASK = B - 1;
+	
+	private final int[] tree;
+	private final int[] prefix; // max from the start of the block up to and including this slot
+	private final int[] suffix; // max from this slot to the end of the block
+	private final int[] offsets; // where each level starts in tree[]
+	private final int n; // input array length
+	
+	public WideSegmentTreeMax(int[] ar) {
+		n = ar.length;
+		
+		// figure out the level sizes first
+		int levels = 1;
+		int total = pad(n);
+		for (int len = pad(n); len > B; len = pad(len >> BITS)) {
+			levels++;
+			total += pad(len >> BITS);
+		}
+		
+		tree = new int[total];
+		prefix = new int[total];
+		suffix = new int[total];
+		offsets = new int[levels + 1];
+		
+		offsets[0] = 0;
+		int len = pad(n);
+		for (int h = 1; h <= levels; h++) {
+			offsets[h] = offsets[h - 1] + len;
+			len = pad(len >> BITS);
+		}
+		
+		System.arraycopy(ar, 0, tree, 0, n);
+		for (int i = n; i < offsets[1]; i++) {
+			tree[i] = Integer.MIN_VALUE;
+		}
+		
+		for (int h = 1; h <= levels; h++) {
+			int below = offsets[h - 1];
+			int blocks = (offsets[h] - below) >> BITS;
+			
+			for (int b = 0; b < blocks; b++) {
+				int blockMax = makeBlock(below + (b << BITS));
+				if (h < levels) {
+					tree[offsets[h] + b] = blockMax;
+				}
+			}
+			if (h < levels) {
+				for (int p = offsets[h] + blocks; p < offsets[h + 1]; p++) {
+					tree[p] = Integer.MIN_VALUE;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return len rounded up to a multiple of B, at least B
+	 */
+	private static int pad(int len) {
+		return Math.max(B, (len + MASK) & ~MASK);
+	}
+	
+	/**
+	 * fills in prefix[] and suffix[] for the block of B values starting at tree[start]
+	 * @return max of the whole block
+	 */
+	private int makeBlock(int start) {
+		int max = Integer.MIN_VALUE;
+		for (int i = start; i < start + B; i++) {
+			max = Math.max(max, tree[i]);
+			prefix[i] = max;
+		}
+		max = Integer.MIN_VALUE;
+		for (int i = start + MASK; i >= start; i--) {
+			max = Math.max(max, tree[i]);
+			suffix[i] = max;
+		}
+		return max;
+	}
+	
+	/**
+	 * @param i - index to original array, inclusive
+	 * @param value - new value to be saved off
+	 */
+	public void update(int i, int value) {
+		tree[i] = value;
+		
+		for (int h = 1; h < offsets.length; h++) {
+			int newValue = makeBlock(offsets[h - 1] + (i & ~MASK));
+			i >>= BITS;
+			
+			if (h == offsets.length - 1 || tree[offsets[h] + i] == newValue) {
+				return; // top level, or no change to propagate up
+			}
+			tree[offsets[h] + i] = newValue;
+		}
+	}
+	
+	/**
+	 * Same idea as SegmentTreeMax.max(): start at the leaves and work up. On each level, the parts of the range that only partially
+	 * cover a block are picked up from suffix[] and prefix[], and the rest of the range moves up to the next level, where it is 16 
+	 * times shorter. Once the range fits inside of a single block, that block gets scanned.
+	 * 
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return Integer.MIN_VALUE if the range is empty
+	 */
+	public int max(int from, int to) {
+		int max = Integer.MIN_VALUE;
+		
+		for (int h = 0; from < to; h++) {
+			int base = offsets[h];
+			
+			if ((from >> BITS) == ((to - 1) >> BITS)) { // within a single block
+				if ((from & MASK) == 0) {
+					return Math.max(max, prefix[base + to - 1]);
+				}
+				if ((to & MASK) == 0) {
+					return Math.max(max, suffix[base + from]);
+				}
+				for (int i = base + from; i < base + to; i++) {
+					max = Math.max(max, tree[i]);
+				}
+				return max;
+			}
+			
+			if ((from & MASK) != 0) { // partial block on the left
+				max = Math.max(max, suffix[base + from]);
+				from = (from | MASK) + 1;
+			}
+			if ((to & MASK) != 0) { // partial block on the right
+				max = Math.max(max, prefix[base + to - 1]);
+				to &= ~MASK;
+			}
+			
+			from >>= BITS;
+			to >>= BITS;
+		}
+		
+		return max;
+	}
+	
+	public static void main(String[] args) {
+		int[] ar = new int[1000];
+		for (int i = 0; i < ar.length; i++) {
+			ar[i] = (i * 37) % 1009;
+		}
+		WideSegmentTreeMax tree = new WideSegmentTreeMax(ar);
+		System.out.println("max=" + tree.max(3, 990) + ", max=" + tree.max(500, 520));
+		
+		tree.update(510, 5000);
+		System.out.println("max=" + tree.max(500, 520));
+	}
+}
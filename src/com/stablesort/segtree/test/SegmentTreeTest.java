@@ -3,15 +3,32 @@ package com.stablesort.segtree.test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
+import com.stablesort.function.LongLazyOperator;
+import com.stablesort.segtree.DynamicSegmentTree;
+import com.stablesort.segtree.IntBlockSparseTable;
+import com.stablesort.segtree.IntSegmentTree;
+import com.stablesort.segtree.IntSparseTable;
+import com.stablesort.segtree.LazySegmentTree;
+import com.stablesort.segtree.LongLazySegmentTree;
+import com.stablesort.segtree.MaxSubarraySegmentTree;
+import com.stablesort.segtree.OffHeapSegmentTreeMax;
+import com.stablesort.segtree.PersistentSegmentTreeMax;
 import com.stablesort.segtree.SegmentTree;
 import com.stablesort.segtree.SegmentTreeMax;
+import com.stablesort.segtree.WaveletTree;
+import com.stablesort.segtree.WideSegmentTreeMax;
 import com.stablesort.util.Rand;
 import com.stablesort.util.StopWatch;
 
 /*
- * for testing SegmentTree and SegmentTreeMax classes
+ * for testing SegmentTree, SegmentTreeMax and IntSegmentTree classes, the descents on SegmentTreeMax, LazySegmentTree and 
+ * LongLazySegmentTree, the sparse tables, PersistentSegmentTreeMax, DynamicSegmentTree, WaveletTree and MaxSubarraySegmentTree.
+ * Also compares the performance of the parallel build, batch queries, WideSegmentTreeMax and OffHeapSegmentTreeMax.
  */
 public class SegmentTreeTest {
 	
@@ -37,6 +54,22 @@ public class SegmentTreeTest {
 		return max;
 	}
 	
+	/**
+	 * linear running time sum, used for checking for correctness
+	 * 
+	 * @param ar
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @return
+	 */
+	private long dumbSum(int[]ar, int from, int to) {
+		long sum = 0;
+		for (int i = from; i < to; i++) {
+			sum += ar[i];
+		}
+		return sum;
+	}
+	
 	/**
 	 * tests SegmentTree for correctness against the dumbMax() function
 	 */
@@ -110,7 +143,535 @@ public class SegmentTreeTest {
 	}
 	
 	/**
-	 * checks to see how fast do SegmentTree and SegmentTreeMax operate
+	 * linear running time findFirst()/findLast(), used for checking for correctness
+	 * 
+	 * @param ar
+	 * @param from - inclusive
+	 * @param to - exclusive
+	 * @param x
+	 * @param first - TRUE for the first index with ar[i] >= x, FALSE for the last one
+	 * @return -1 if there is no such index
+	 */
+	private int dumbFind(int[] ar, int from, int to, int x, boolean first) {
+		for (int k = 0; k < to - from; k++) {
+			int i = first ? from + k : to - 1 - k;
+			if (ar[i] >= x) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * tests argMax(), findFirst() and findLast() of SegmentTreeMax and SegmentTree against linear scans, with updates. The lengths are
+	 * mostly not powers of 2 and the values are small, so that there are plenty of ties for argMax() to pick the leftmost one from.
+	 */
+	public void testDescents() {
+		Random r = new Random();
+		
+		for (int len : new int[]{1, 2, 3, 5, 7, 8, 100, 1000, 12_345}) {
+			int[] ar = new int[len];
+			List<Integer> l = new ArrayList<>(len);
+			for (int i = 0; i < len; i++) {
+				ar[i] = r.nextInt(20);
+				l.add(ar[i]);
+			}
+			SegmentTreeMax stMax = new SegmentTreeMax(ar);
+			SegmentTree<Integer> st = new SegmentTree<>(l, (a,b) -> Math.max(a, b));
+			
+			int numTrials = 1000;
+			
+			for (int i = 0; i < numTrials; i++) {
+				int from = r.nextInt(len);
+				int to = from + 1 + r.nextInt(len - from);
+				
+				int max = dumbMax(ar, from, to);
+				int arg = stMax.argMax(from, to);
+				if (arg != st.argMax(from, to) || arg < from || arg >= to || ar[arg] != max || dumbMax(ar, from, arg) == max) {
+					throw new RuntimeException("argMax mismatch: [" + from + " to " + to + "] --> " + arg + " <> " + st.argMax(from, to));
+				}
+				
+				final int x = r.nextInt(22); // sometimes larger than any of the values, so nothing is found
+				int first = dumbFind(ar, from, to, x, true);
+				int last = dumbFind(ar, from, to, x, false);
+				if (first != stMax.findFirst(from, to, v -> v >= x) || first != st.findFirst(from, to, v -> v >= x)
+						|| last != stMax.findLast(from, to, v -> v >= x) || last != st.findLast(from, to, v -> v >= x)) {
+					throw new RuntimeException("find mismatch: [" + from + " to " + to + "] x = " + x + " --> " + first + ", " + last);
+				}
+				
+				if (dumbFind(ar, from, len, x, true) != stMax.findFirst(from, v -> v >= x) || dumbFind(ar, from, len, x, true) != st.findFirst(from, v -> v >= x)
+						|| dumbFind(ar, 0, to, x, false) != stMax.findLast(to, v -> v >= x) || dumbFind(ar, 0, to, x, false) != st.findLast(to, v -> v >= x)) {
+					throw new RuntimeException("open ended find mismatch: [" + from + " to " + to + "] x = " + x);
+				}
+				
+				if (stMax.argMax(from, from) != -1 || st.argMax(from, from) != -1) {
+					throw new RuntimeException("argMax of an empty range at " + from);
+				}
+				
+				int j = r.nextInt(len); // make a random update
+				ar[j] = r.nextInt(20);
+				stMax.update(j, ar[j]);
+				st.update(j, ar[j]);
+			}
+		}
+		
+		System.out.println("testDescents: SUCCESS");
+	}
+	
+	/**
+	 * tests IntSegmentTree for correctness against the dumbMax() function
+	 */
+	public void testIntSegmentTree() {				
+		int[] ar = Rand.getRandIntAr(arLen);
+		IntSegmentTree st = new IntSegmentTree(ar, Integer.MIN_VALUE, Math::max);
+		Random r = new Random();
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			
+			int from = r.nextInt(arLen);
+			int len = arLen-from;
+			int to = len > 0 ? r.nextInt(len) : from;
+			
+			to += from+1;
+			
+			if (dumbMax(ar, from, to) != st.query(from, to)) {
+				System.out.println(Arrays.toString(ar));
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + dumbMax(ar, from, to) + " <> " + st.query(from, to));
+			}
+			
+			ar[from] = from; // make a 'random' update
+			st.update(from, from);
+		}
+		
+		System.out.println("testIntSegmentTree: SUCCESS");
+	}
+	
+	/**
+	 * tests LazySegmentTree range add and range assign for correctness against the dumbMax() and dumbSum() functions
+	 */
+	public void testLazySegmentTree() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		LazySegmentTree st = new LazySegmentTree(ar);
+		Random r = new Random();
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			
+			int from = r.nextInt(arLen);
+			int len = arLen-from;
+			int to = len > 0 ? r.nextInt(len) : from;
+			
+			to += from+1;
+			
+			if (dumbMax(ar, from, to) != st.max(from, to) || dumbSum(ar, from, to) != st.sum(from, to)) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + dumbMax(ar, from, to) + " <> " + st.max(from, to)
+					+ ", " + dumbSum(ar, from, to) + " <> " + st.sum(from, to));
+			}
+			
+			// make a random range update, half of the time an add and the other half an assign
+			int value = r.nextInt(2001) - 1000;
+			if (r.nextBoolean()) {
+				for (int k = from; k < to; k++) {
+					ar[k] += value;
+				}
+				st.add(from, to, value);
+			} else {
+				Arrays.fill(ar, from, to, value);
+				st.assign(from, to, value);
+			}
+		}
+		
+		System.out.println("testLazySegmentTree: SUCCESS");
+	}
+	
+	/**
+	 * tests LongLazySegmentTree with two different LongLazyOperator's: range add with range sum, and range assign with range max.
+	 * Each one against its own plain array and the dumbSum()/dumbMax() functions.
+	 */
+	public void testLongLazySegmentTree() {
+		int arLen = this.arLen / 10; // two trees of 4 * n longs each
+		int[] arSum = Rand.getRandIntAr(arLen);
+		int[] arMax = arSum.clone();
+		long[] ar = new long[arLen];
+		for (int i = 0; i < arLen; i++) {
+			ar[i] = arSum[i];
+		}
+		
+		LongLazySegmentTree sums = new LongLazySegmentTree(ar, new LongLazyOperator() {
+			@Override
+			public long identity() {
+				return 0;
+			}
+			@Override
+			public long combine(long a, long b) {
+				return a + b;
+			}
+			@Override
+			public long noTag() {
+				return 0;
+			}
+			@Override
+			public long compose(long older, long newer) {
+				return older + newer;
+			}
+			@Override
+			public long apply(long tag, long value, int len) {
+				return value + tag * len;
+			}
+		});
+		
+		LongLazySegmentTree maxes = new LongLazySegmentTree(ar, new LongLazyOperator() {
+			@Override
+			public long identity() {
+				return Long.MIN_VALUE;
+			}
+			@Override
+			public long combine(long a, long b) {
+				return Math.max(a, b);
+			}
+			@Override
+			public long noTag() {
+				return Long.MIN_VALUE; // no assign pending
+			}
+			@Override
+			public long compose(long older, long newer) {
+				return newer == Long.MIN_VALUE ? older : newer;
+			}
+			@Override
+			public long apply(long tag, long value, int len) {
+				return tag == Long.MIN_VALUE ? value : tag;
+			}
+		});
+		Random r = new Random();
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			
+			int from = r.nextInt(arLen);
+			int len = arLen-from;
+			int to = len > 0 ? r.nextInt(len) : from;
+			
+			to += from+1;
+			
+			if (dumbSum(arSum, from, to) != sums.query(from, to) || dumbMax(arMax, from, to) != maxes.query(from, to)) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + dumbSum(arSum, from, to) + " <> " + sums.query(from, to)
+					+ ", " + dumbMax(arMax, from, to) + " <> " + maxes.query(from, to));
+			}
+			
+			// make a random range update on each of them
+			int value = r.nextInt(2001) - 1000;
+			for (int k = from; k < to; k++) {
+				arSum[k] += value;
+			}
+			sums.apply(from, to, value);
+			
+			Arrays.fill(arMax, from, to, value);
+			maxes.apply(from, to, value);
+		}
+		
+		System.out.println("testLongLazySegmentTree: SUCCESS");
+	}
+	
+	/**
+	 * tests IntSparseTable and IntBlockSparseTable for correctness against the dumbMax() function. Since they are read-only, there are no updates.
+	 */
+	public void testSparseTables() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		IntSparseTable table = new IntSparseTable(ar, Math::max);
+		IntBlockSparseTable blockTable = new IntBlockSparseTable(ar, Math::max);
+		Random r = new Random();
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			
+			int from = r.nextInt(arLen);
+			int len = arLen-from;
+			int to = len > 0 ? r.nextInt(len) : from;
+			
+			to += from+1;
+			
+			if (i % 2 == 0) {
+				to = Math.min(to, from + r.nextInt(64) + 1); // short ranges, so that some of them fall within a single block
+			}
+			
+			if (dumbMax(ar, from, to) != table.query(from, to) || dumbMax(ar, from, to) != blockTable.query(from, to)) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + dumbMax(ar, from, to) + " <> " 
+					+ table.query(from, to) + " <> " + blockTable.query(from, to));
+			}
+		}
+		
+		System.out.println("testSparseTables: SUCCESS");
+	}
+	
+	/**
+	 * tests PersistentSegmentTreeMax against a plain int[] copy of every version, with updates from random versions, releases and
+	 * compacts. After each compact every live version is checked again, and released versions have to be rejected.
+	 */
+	public void testPersistentSegmentTreeMax() {
+		int len = 1000;
+		int[] ar = Rand.getRandIntAr(len);
+		PersistentSegmentTreeMax tree = new PersistentSegmentTreeMax(ar);
+		List<int[]> versions = new ArrayList<>(); // copy of the array for each version, null once released
+		versions.add(ar.clone());
+		Random r = new Random();
+		
+		int numTrials = 3000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			int v = r.nextInt(versions.size());
+			int op = r.nextInt(10);
+			
+			if (versions.get(v) == null) {
+				try {
+					tree.max(v, 0, len);
+					throw new RuntimeException("released version " + v + " was not rejected");
+				} catch (IllegalArgumentException e) {
+					// expected
+				}
+			} else if (op < 7) {
+				int j = r.nextInt(len);
+				int value = r.nextInt(len * 2);
+				int[] copy = versions.get(v).clone();
+				copy[j] = value;
+				
+				int newVersion = tree.update(v, j, value);
+				if (newVersion != versions.size()) {
+					throw new RuntimeException("unexpected version handle: " + newVersion);
+				}
+				versions.add(copy);
+			} else if (op < 9) {
+				tree.release(v);
+				versions.set(v, null);
+			} else {
+				int nodes = tree.nodeCount();
+				tree.compact();
+				if (tree.nodeCount() > nodes) {
+					throw new RuntimeException("compact() grew the pool: " + nodes + " -> " + tree.nodeCount());
+				}
+				
+				for (int k = 0; k < versions.size(); k++) {
+					if (versions.get(k) != null) {
+						checkVersion(tree, k, versions.get(k), r);
+					}
+				}
+			}
+			
+			int last = versions.size() - 1;
+			if (versions.get(last) != null) {
+				checkVersion(tree, last, versions.get(last), r);
+			}
+		}
+		
+		System.out.println("testPersistentSegmentTreeMax: SUCCESS");
+	}
+	
+	/**
+	 * checks a few random ranges of one version of PersistentSegmentTreeMax against dumbMax()
+	 */
+	private void checkVersion(PersistentSegmentTreeMax tree, int version, int[] ar, Random r) {
+		for (int k = 0; k < 5; k++) {
+			int from = r.nextInt(ar.length);
+			int to = from + 1 + r.nextInt(ar.length - from);
+			if (dumbMax(ar, from, to) != tree.max(version, from, to)) {
+				throw new RuntimeException("Mismatch in version " + version + ": [" + from + " to " + to + "] --> " 
+					+ dumbMax(ar, from, to) + " <> " + tree.max(version, from, to));
+			}
+		}
+	}
+	
+	/**
+	 * tests DynamicSegmentTree against a TreeMap, with random set(), add() and remove() calls over a small set of keys spread over
+	 * 2^40, so that keys keep coming and going. Every so often compact() is called. At the end all of the keys are removed and added
+	 * back, which should be done entirely with nodes from the free list.
+	 */
+	public void testDynamicSegmentTree() {
+		long universe = 1L << 40;
+		DynamicSegmentTree tree = new DynamicSegmentTree(universe);
+		TreeMap<Long, Long> map = new TreeMap<>();
+		Random r = new Random();
+		
+		long[] keys = new long[500];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = (long) (r.nextDouble() * universe);
+		}
+		keys[0] = 0; // both ends of the key range
+		keys[1] = universe - 1;
+		
+		int numTrials = 20_000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			long key = keys[r.nextInt(keys.length)];
+			long value = r.nextInt(2001) - 1000;
+			int op = r.nextInt(3);
+			
+			if (op == 0) {
+				tree.set(key, value);
+				map.put(key, value);
+			} else if (op == 1) {
+				tree.add(key, value);
+				map.merge(key, value, Long::sum);
+			} else {
+				tree.remove(key);
+				map.remove(key);
+			}
+			
+			if (i % 1000 == 999) {
+				tree.compact();
+				if (tree.nodeCount() != tree.poolSize()) {
+					throw new RuntimeException("compact() left free nodes: " + tree.nodeCount() + " <> " + tree.poolSize());
+				}
+				if (tree.capacity() != Math.max(64, tree.nodeCount() + 1)) {
+					throw new RuntimeException("compact() did not right-size the pool: " + tree.capacity() + " slots for " + tree.nodeCount() + " nodes");
+				}
+			}
+			
+			long from = keys[r.nextInt(keys.length)];
+			long to = keys[r.nextInt(keys.length)] + 1;
+			if (from > to) {
+				long t = from;
+				from = to - 1;
+				to = t + 1;
+			}
+			checkDynamic(tree, map, from, to);
+			
+			if (tree.size() != map.size() || tree.contains(key) != map.containsKey(key)) {
+				throw new RuntimeException("size/contains mismatch: " + tree.size() + " <> " + map.size() + " for key " + key);
+			}
+		}
+		checkDynamic(tree, map, 0, universe);
+		
+		TreeMap<Long, Long> saved = new TreeMap<>(map);
+		int poolSize = tree.poolSize();
+		for (long key : saved.keySet()) {
+			tree.remove(key);
+		}
+		if (tree.size() != 0 || tree.nodeCount() != 0 || tree.sum(0, universe) != 0) {
+			throw new RuntimeException("tree is not empty after removing every key: " + tree.size() + ", " + tree.nodeCount());
+		}
+		for (Map.Entry<Long, Long> e : saved.entrySet()) {
+			tree.set(e.getKey(), e.getValue());
+		}
+		if (tree.poolSize() != poolSize) {
+			throw new RuntimeException("free nodes were not reused: pool went from " + poolSize + " to " + tree.poolSize());
+		}
+		checkDynamic(tree, saved, 0, universe);
+		
+		System.out.println("testDynamicSegmentTree: SUCCESS");
+	}
+	
+	/**
+	 * checks DynamicSegmentTree sum() and max() over [from, to) against the TreeMap
+	 */
+	private void checkDynamic(DynamicSegmentTree tree, TreeMap<Long, Long> map, long from, long to) {
+		long sum = 0;
+		long max = Long.MIN_VALUE;
+		for (long v : map.subMap(from, to).values()) {
+			sum += v;
+			max = Math.max(max, v);
+		}
+		
+		if (sum != tree.sum(from, to) || max != tree.max(from, to)) {
+			throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + sum + ", " + max + " <> " 
+				+ tree.sum(from, to) + ", " + tree.max(from, to));
+		}
+	}
+	
+	/**
+	 * tests WaveletTree for correctness with linear scans of the range. The k-th smallest value v is right when there are fewer than k 
+	 * values less than v, but at least k values less than or equal to v.
+	 */
+	public void testWaveletTree() {
+		int len = arLen / 10;
+		int[] ar = Rand.getRandIntAr(len);
+		WaveletTree tree = new WaveletTree(ar);
+		Random r = new Random();
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			int from = r.nextInt(len);
+			int to = from + 1 + r.nextInt(len - from);
+			int k = r.nextInt(to - from) + 1;
+			int x = ar[r.nextInt(len)] + r.nextInt(3) - 1;
+			
+			int v = tree.kthSmallest(from, to, k);
+			int less = 0, lessOrEqual = 0, lessX = 0;
+			for (int j = from; j < to; j++) {
+				if (ar[j] < v) less++;
+				if (ar[j] <= v) lessOrEqual++;
+				if (ar[j] < x) lessX++;
+			}
+			
+			if (less >= k || lessOrEqual < k) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] k = " + k + " --> " + v);
+			}
+			if (lessX != tree.countLess(from, to, x)) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] x = " + x + " --> " + lessX + " <> " + tree.countLess(from, to, x));
+			}
+		}
+		
+		System.out.println("testWaveletTree: SUCCESS");
+	}
+	
+	/**
+	 * linear Kadane's algorithm, used for checking MaxSubarraySegmentTree for correctness
+	 */
+	private long dumbMaxSubarray(long[] ar, int from, int to) {
+		long best = ar[from];
+		long suffix = ar[from];
+		
+		for (int i = from + 1; i < to; i++) {
+			suffix = Math.max(ar[i], suffix + ar[i]);
+			best = Math.max(best, suffix);
+		}
+		return best;
+	}
+	
+	/**
+	 * tests MaxSubarraySegmentTree for correctness against dumbMaxSubarray(), with random updates. Also checks that the returned 
+	 * boundaries really add up to the returned sum.
+	 */
+	public void testMaxSubarraySegmentTree() {
+		int len = arLen / 10;
+		long[] ar = new long[len];
+		Random r = new Random();
+		for (int i = 0; i < len; i++) {
+			ar[i] = r.nextInt(2001) - 1000;
+		}
+		MaxSubarraySegmentTree tree = new MaxSubarraySegmentTree(ar);
+		
+		int numTrials = 1000;
+		
+		for (int i = 0; i < numTrials; i++) {
+			int j = r.nextInt(len);
+			ar[j] = r.nextInt(2001) - 1000;
+			tree.update(j, ar[j]);
+			
+			int from = r.nextInt(len);
+			int to = from + 1 + r.nextInt(len - from);
+			
+			long expected = dumbMaxSubarray(ar, from, to);
+			MaxSubarraySegmentTree.Subarray sub = tree.maxSubarray(from, to);
+			long actual = 0;
+			for (int k = sub.from; k < sub.to; k++) {
+				actual += ar[k];
+			}
+			
+			if (expected != sub.sum || expected != actual || expected != tree.maxSum(from, to) || sub.from < from || sub.to > to) {
+				throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + expected + " <> " + sub + " <> " + actual);
+			}
+		}
+		
+		System.out.println("testMaxSubarraySegmentTree: SUCCESS");
+	}
+	
+	/**
+	 * checks to see how fast do SegmentTree, SegmentTreeMax and IntSegmentTree operate
 	 */
 	public void comparePerf() {
 		int[] ar = Rand.getRandIntAr(arLen);		
@@ -126,10 +687,14 @@ public class SegmentTreeTest {
 		SegmentTreeMax stMax = new SegmentTreeMax(ar);
 		System.out.println("new SegmentTreeMax = " + sw);
 		
+		IntSegmentTree stInt = new IntSegmentTree(ar, Integer.MIN_VALUE, Math::max);
+		System.out.println("new IntSegmentTree = " + sw);
+		
 		Random r = new Random();
 		int numTrials = 1000;
 		int qSt = 0;
 		int qStMax = 0;
+		int qStInt = 0;
 		int qDumb = 0;
 		int dummy = 0; // to make sure the compiler does not over-smart us and actually call the function
 		
@@ -151,21 +716,221 @@ public class SegmentTreeTest {
 			dummy += stMax.max(from, to);
 			qStMax += sw.poll();
 			
+			dummy += stInt.query(from, to);
+			qStInt += sw.poll();
+			
 			dummy += dumbMax(ar, from, to);
 			qDumb += sw.poll();
 		}
 		
 		System.out.println("SegmentTree took " + qSt);
 		System.out.println("SegmentTreeMax took " + qStMax);
+		System.out.println("IntSegmentTree took " + qStInt);
 		System.out.println("SegmentTreeDumb took " + qDumb);
 		System.out.println("dummy = " + dummy);
 	}
 
+	/**
+	 * checks how long it takes to build SegmentTree and SegmentTreeMax on 1, 4 and 16 threads, and that the parallel build
+	 * gives the same answers as the sequential one
+	 */
+	public void compareParallelBuild() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		List<Integer> l = new ArrayList<>(arLen);
+		for (int i = 0; i < ar.length; i++) {
+			l.add(ar[i]);
+		}
+		
+		StopWatch sw = new StopWatch();
+		SegmentTree<Integer> st = new SegmentTree<>(l, (a,b) -> Math.max(a, b));
+		System.out.println("sequential SegmentTree = " + sw.poll());
+		SegmentTreeMax stMax = new SegmentTreeMax(ar);
+		System.out.println("sequential SegmentTreeMax = " + sw.poll());
+		
+		Random r = new Random();
+		
+		for (int cores : new int[]{1, 4, 16}) {
+			ForkJoinPool pool = new ForkJoinPool(cores);
+			
+			sw.poll();
+			SegmentTree<Integer> pst = new SegmentTree<>(l, (a,b) -> Math.max(a, b), pool);
+			System.out.println(cores + " cores: SegmentTree = " + sw.poll());
+			SegmentTreeMax pstMax = new SegmentTreeMax(ar, pool);
+			System.out.println(cores + " cores: SegmentTreeMax = " + sw.poll());
+			
+			pool.shutdown();
+			
+			for (int i = 0; i < 1000; i++) {
+				int from = r.nextInt(arLen);
+				int to = from + 1 + r.nextInt(arLen - from);
+				
+				if (!st.query(from, to).equals(pst.query(from, to)) || stMax.max(from, to) != pstMax.max(from, to)) {
+					throw new RuntimeException("Mismatch: [" + from + " to " + to + "] --> " + st.query(from, to) + " <> " + pst.query(from, to)
+						+ ", " + stMax.max(from, to) + " <> " + pstMax.max(from, to));
+				}
+			}
+		}
+		
+		System.out.println("compareParallelBuild: SUCCESS");
+	}
+
+	/**
+	 * checks that the batch query methods give the same answers as one query at a time, and how long each takes
+	 */
+	public void compareBatchQuery() {
+		int[] ar = Rand.getRandIntAr(arLen);
+		List<Integer> l = new ArrayList<>(arLen);
+		for (int i = 0; i < ar.length; i++) {
+			l.add(ar[i]);
+		}
+		SegmentTree<Integer> st = new SegmentTree<>(l, (a,b) -> Math.max(a, b));
+		SegmentTreeMax stMax = new SegmentTreeMax(ar);
+		
+		int numQueries = 5_000_000;
+		int[] froms = new int[numQueries];
+		int[] tos = new int[numQueries];
+		Random r = new Random();
+		for (int k = 0; k < numQueries; k++) {
+			froms[k] = r.nextInt(arLen);
+			tos[k] = froms[k] + 1 + r.nextInt(arLen - froms[k]);
+		}
+		
+		int[] seq = new int[numQueries];
+		int[] batch = new int[numQueries];
+		int[] batchSorted = new int[numQueries];
+		Integer[] batchGeneric = new Integer[numQueries];
+		
+		StopWatch sw = new StopWatch();
+		for (int k = 0; k < numQueries; k++) {
+			seq[k] = stMax.max(froms[k], tos[k]);
+		}
+		System.out.println("SegmentTreeMax one at a time took " + sw.poll());
+		
+		stMax.max(froms, tos, batch);
+		System.out.println("SegmentTreeMax batch took " + sw.poll());
+		
+		stMax.max(froms, tos, batchSorted, true);
+		System.out.println("SegmentTreeMax sorted batch took " + sw.poll());
+		
+		st.query(froms, tos, batchGeneric);
+		System.out.println("SegmentTree batch took " + sw.poll());
+		
+		for (int k = 0; k < numQueries; k++) {
+			if (seq[k] != batch[k] || seq[k] != batchSorted[k] || seq[k] != batchGeneric[k]) {
+				throw new RuntimeException("Mismatch: [" + froms[k] + " to " + tos[k] + "] --> " + seq[k] + " <> " + batch[k] 
+					+ " <> " + batchSorted[k] + " <> " + batchGeneric[k]);
+			}
+		}
+		
+		System.out.println("compareBatchQuery: SUCCESS");
+	}
+
+	/**
+	 * checks WideSegmentTreeMax against SegmentTreeMax for correctness, and compares how fast their max() is, for each of the array lengths
+	 * @param lens - for example 1_000_000, 10_000_000, 100_000_000 (needs about 2GB of heap)
+	 */
+	public void compareWidePerf(int... lens) {
+		for (int len : lens) {
+			int[] ar = Rand.getRandIntAr(len);
+			SegmentTreeMax stMax = new SegmentTreeMax(ar);
+			WideSegmentTreeMax wide = new WideSegmentTreeMax(ar);
+			
+			Random r = new Random();
+			int numTrials = 10_000_000;
+			int[] froms = new int[numTrials];
+			int[] tos = new int[numTrials];
+			for (int i = 0; i < numTrials; i++) {
+				froms[i] = r.nextInt(len);
+				tos[i] = froms[i] + 1 + r.nextInt(len - froms[i]);
+			}
+			
+			long dummy = 0; // to make sure the compiler does not over-smart us and actually call the function
+			StopWatch sw = new StopWatch();
+			for (int i = 0; i < numTrials; i++) {
+				dummy += stMax.max(froms[i], tos[i]);
+			}
+			long tMax = sw.poll();
+			
+			for (int i = 0; i < numTrials; i++) {
+				dummy += wide.max(froms[i], tos[i]);
+			}
+			long tWide = sw.poll();
+			
+			for (int i = 0; i < 1000; i++) {
+				if (stMax.max(froms[i], tos[i]) != wide.max(froms[i], tos[i])) {
+					throw new RuntimeException("Mismatch: [" + froms[i] + " to " + tos[i] + "] --> " + stMax.max(froms[i], tos[i]) + " <> " + wide.max(froms[i], tos[i]));
+				}
+				ar[froms[i]] = froms[i]; // make a 'random' update
+				stMax.update(froms[i], froms[i]);
+				wide.update(froms[i], froms[i]);
+			}
+			
+			System.out.println(len + ": SegmentTreeMax took " + tMax + ", WideSegmentTreeMax took " + tWide + ", dummy = " + dummy);
+		}
+	}
+
+	/**
+	 * compares query speed of OffHeapSegmentTreeMax to the on-heap SegmentTreeMax, on the same random ranges. Also checks them
+	 * against each other, with updates.
+	 */
+	public void compareOffHeapPerf(int... lens) {
+		for (int len : lens) {
+			int[] ar = Rand.getRandIntAr(len);
+			SegmentTreeMax stMax = new SegmentTreeMax(ar);
+			OffHeapSegmentTreeMax offHeap = new OffHeapSegmentTreeMax(ar);
+			
+			Random r = new Random();
+			int numTrials = 10_000_000;
+			int[] froms = new int[numTrials];
+			int[] tos = new int[numTrials];
+			for (int i = 0; i < numTrials; i++) {
+				froms[i] = r.nextInt(len);
+				tos[i] = froms[i] + 1 + r.nextInt(len - froms[i]);
+			}
+			
+			long dummy = 0; // to make sure the compiler does not over-smart us and actually call the function
+			StopWatch sw = new StopWatch();
+			for (int i = 0; i < numTrials; i++) {
+				dummy += stMax.max(froms[i], tos[i]);
+			}
+			long tMax = sw.poll();
+			
+			for (int i = 0; i < numTrials; i++) {
+				dummy += offHeap.max(froms[i], tos[i]);
+			}
+			long tOffHeap = sw.poll();
+			
+			for (int i = 0; i < 1000; i++) {
+				if (stMax.max(froms[i], tos[i]) != offHeap.max(froms[i], tos[i])) {
+					throw new RuntimeException("Mismatch: [" + froms[i] + " to " + tos[i] + "] --> " + stMax.max(froms[i], tos[i]) + " <> " + offHeap.max(froms[i], tos[i]));
+				}
+				ar[froms[i]] = froms[i]; // make a 'random' update
+				stMax.update(froms[i], froms[i]);
+				offHeap.update(froms[i], froms[i]);
+			}
+			
+			System.out.println(len + ": SegmentTreeMax took " + tMax + ", OffHeapSegmentTreeMax took " + tOffHeap + ", dummy = " + dummy);
+		}
+	}
+
 	public static void main(String[] args) {
 		StopWatch sw = new StopWatch();
 		SegmentTreeTest test = new SegmentTreeTest();
 		test.testSegmentTree();
 //		test.testSegmentTreeMax();
+//		test.testDescents();
+//		test.testIntSegmentTree();
+//		test.testLazySegmentTree();
+//		test.testLongLazySegmentTree();
+//		test.testSparseTables();
+//		test.testPersistentSegmentTreeMax();
+//		test.testDynamicSegmentTree();
+//		test.testWaveletTree();
+//		test.testMaxSubarraySegmentTree();
+//		test.compareParallelBuild();
+//		test.compareBatchQuery();
+//		test.compareWidePerf(1_000_000, 10_000_000, 100_000_000);
+//		test.compareOffHeapPerf(1_000_000, 10_000_000, 100_000_000);
 //		test.comparePerf();
 		System.out.println(sw);
 	}
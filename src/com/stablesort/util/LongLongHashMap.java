@@ -0,0 +1,146 @@
+package com.stablesort.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long to long that stores its keys and values in primitive arrays, so unlike HashMap<Long, Long> it does not
+ * allocate any objects on get() or put().
+ * 
+ * Uses open addressing with linear probing. A key of 0 marks an empty slot, so the actual 0 key is kept on the side.
+ * Missing keys read as 0, which makes it convenient for sums and counters.
+ * 
+ * @author Andre Violentyev
+ */
+public class LongLongHashMap {
+	
+	private long[] keys;
+	private long[] values;
+	private int shift; // 64 - log2(capacity), used by hash()
+	private int size = 0; // not counting the 0 key
+	
+	private boolean hasZeroKey = false;
+	private long zeroValue = 0;
+	
+	public LongLongHashMap() {
+		this(16);
+	}
+	
+	/**
+	 * @param expectedSize - number of keys it can take before having to resize, capped at 2^29
+	 */
+	public LongLongHashMap(int expectedSize) {
+		expectedSize = Math.min(expectedSize, 1 << 29); // 2^30 slots is the largest power of 2 an array can have
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1; // keep the load factor under 0.5
+		keys = new long[capacity];
+		values = new long[capacity];
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+	
+	/**
+	 * Fibonacci hashing: multiplying by 2^64 / golden ratio spreads out keys that only differ in the higher bits, 
+	 * then the top bits are used as the slot index
+	 */
+	private int hash(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+	
+	/**
+	 * @param key
+	 * @return index of the slot that either holds the key or is the empty slot where it should go
+	 */
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key);
+		while (keys[i] != 0 && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+	
+	/**
+	 * @param key
+	 * @return the value for the key, or 0 if the key is not in the map
+	 */
+	public long get(long key) {
+		if (key == 0) {
+			return zeroValue;
+		}
+		return values[slot(key)];
+	}
+	
+	public boolean containsKey(long key) {
+		if (key == 0) {
+			return hasZeroKey;
+		}
+		return keys[slot(key)] != 0;
+	}
+	
+	public void put(long key, long value) {
+		if (key == 0) {
+			hasZeroKey = true;
+			zeroValue = value;
+			return;
+		}
+		
+		int i = slot(key);
+		if (keys[i] == 0) {
+			keys[i] = key;
+			size++;
+			values[i] = value;
+			if (size * 2 > keys.length) {
+				resize();
+			}
+		} else {
+			values[i] = value;
+		}
+	}
+	
+	/**
+	 * Adds delta to the value for the key, inserting the key if it is not there yet
+	 * @param key
+	 * @param delta
+	 */
+	public void addTo(long key, long delta) {
+		if (key == 0) {
+			put(0, zeroValue + delta);
+		} else {
+			int i = slot(key);
+			put(key, (keys[i] == 0 ? 0 : values[i]) + delta);
+		}
+	}
+	
+	/**
+	 * @return number of keys in the map
+	 */
+	public int size() {
+		return size + (hasZeroKey ? 1 : 0);
+	}
+	
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, 0);
+		size = 0;
+		hasZeroKey = false;
+		zeroValue = 0;
+	}
+	
+	/**
+	 * doubles the capacity and reinserts all of the keys
+	 */
+	private void resize() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		
+		keys = new long[oldKeys.length * 2];
+		values = new long[oldValues.length * 2];
+		shift--;
+		
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int s = slot(oldKeys[i]);
+				keys[s] = oldKeys[i];
+				values[s] = oldValues[i];
+			}
+		}
+	}
+}